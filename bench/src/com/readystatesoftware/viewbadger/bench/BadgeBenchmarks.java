@@ -0,0 +1,321 @@
+package com.readystatesoftware.viewbadger.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import android.content.Context;
+import android.graphics.Color;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.FrameLayout;
+import android.widget.ImageView;
+import android.widget.LinearLayout;
+import android.widget.RelativeLayout;
+import android.widget.TableLayout;
+import android.widget.TableRow;
+
+import com.readystatesoftware.viewbadger.BadgeBackgroundCache;
+import com.readystatesoftware.viewbadger.BadgeView;
+import com.readystatesoftware.viewbadger.BadgeViewPool;
+
+/**
+ * Benchmarks of the badge hot paths.
+ *
+ * Usage: BadgeBenchmarks [-wi warmupIterations] [-i iterations] [-b batchSize] [filter]
+ *
+ * The system property viewbadger.bench.context names the {@link ContextFactory} of the
+ * Android runtime stand-in. Under Robolectric the benchmarks are run by
+ * {@link RobolectricBenchmarks} instead.
+ */
+public class BadgeBenchmarks {
+
+	private static final int[] COLORS = {Color.RED, Color.BLUE};
+
+	private final Context context;
+
+	public BadgeBenchmarks(Context context) {
+		this.context = context;
+	}
+
+	public List<Benchmark> create() {
+
+		List<Benchmark> benchmarks = new ArrayList<Benchmark>();
+
+		benchmarks.add(new Benchmark("BadgeView.construct") {
+			@Override
+			protected Object run(int op) {
+				return new BadgeView(context);
+			}
+		});
+
+		Container[] containers = {
+			new Container("LinearLayout") {
+				@Override
+				ViewGroup create() {
+					return new LinearLayout(context);
+				}
+			},
+			new Container("RelativeLayout") {
+				@Override
+				ViewGroup create() {
+					return new RelativeLayout(context);
+				}
+			},
+			new Container("FrameLayout") {
+				@Override
+				ViewGroup create() {
+					return new FrameLayout(context);
+				}
+			},
+			new Container("TableRow") {
+				@Override
+				ViewGroup create() {
+					TableLayout table = new TableLayout(context);
+					TableRow row = new TableRow(context);
+					table.addView(row);
+					return row;
+				}
+			}
+		};
+		for (Container container : containers) {
+			benchmarks.add(new ApplyToBenchmark(container));
+		}
+		for (Container container : containers) {
+			benchmarks.add(new PoolAcquireBenchmark(container));
+		}
+
+		benchmarks.add(new BadgeBenchmark("BadgeView.increment") {
+			@Override
+			void setUp(BadgeView badge) {
+				badge.setCount(0);
+			}
+			@Override
+			protected Object run(int op) {
+				return badge.increment(1);
+			}
+		});
+		benchmarks.add(new BadgeBenchmark("BadgeView.showHide") {
+			@Override
+			protected Object run(int op) {
+				if ((op & 1) == 0) {
+					badge.show();
+				} else {
+					badge.hide();
+				}
+				return badge;
+			}
+		});
+		benchmarks.add(new BadgeBenchmark("BadgeView.toggle") {
+			@Override
+			protected Object run(int op) {
+				badge.toggle();
+				return badge;
+			}
+		});
+		benchmarks.add(new BadgeBenchmark("BadgeView.setBadgeBackgroundColor") {
+			@Override
+			protected Object run(int op) {
+				badge.setBadgeBackgroundColor(COLORS[op & 1]);
+				return badge;
+			}
+		});
+
+		benchmarks.add(new Benchmark("background.cached") {
+			@Override
+			protected Object run(int op) {
+				return BadgeBackgroundCache.get(Color.RED, 8, 160);
+			}
+		});
+		benchmarks.add(new Benchmark("background.create") {
+			private int maxSize;
+			@Override
+			protected void prepare(int ops) {
+				// every lookup misses, so each one creates a new shape
+				maxSize = BadgeBackgroundCache.getMaxSize();
+				BadgeBackgroundCache.clear();
+				BadgeBackgroundCache.setMaxSize(ops);
+			}
+			@Override
+			protected Object run(int op) {
+				return BadgeBackgroundCache.get(0xFF000000 | op, 8, 160);
+			}
+			@Override
+			protected void tearDown() {
+				BadgeBackgroundCache.clear();
+				BadgeBackgroundCache.setMaxSize(maxSize);
+			}
+		});
+
+		return benchmarks;
+
+	}
+
+	/**
+	 * A type of parent container that badge targets are added to.
+	 */
+	private abstract static class Container {
+
+		final String name;
+
+		Container(String name) {
+			this.name = name;
+		}
+
+		abstract ViewGroup create();
+
+		View addTarget(Context context) {
+			ImageView target = new ImageView(context);
+			create().addView(target);
+			return target;
+		}
+
+	}
+
+	/**
+	 * Creates badges attached to fresh targets in a parent container, the way apps
+	 * attach a new badge.
+	 */
+	private class ApplyToBenchmark extends Benchmark {
+
+		private final Container container;
+		private View[] targets;
+
+		ApplyToBenchmark(Container container) {
+			super("applyTo." + container.name);
+			this.container = container;
+		}
+
+		@Override
+		protected void prepare(int ops) {
+			targets = new View[ops];
+			for (int i = 0; i < ops; i++) {
+				targets[i] = container.addTarget(context);
+			}
+		}
+
+		@Override
+		protected Object run(int op) {
+			return new BadgeView(context, targets[op]);
+		}
+
+		@Override
+		protected void tearDown() {
+			targets = null;
+		}
+
+	}
+
+	/**
+	 * Attaches badges to fresh targets in a parent container. Badges come from a full
+	 * pool, so only acquiring and attaching them is timed, not creating them.
+	 */
+	private class PoolAcquireBenchmark extends Benchmark {
+
+		private final Container container;
+		private BadgeViewPool pool;
+		private View[] targets;
+
+		PoolAcquireBenchmark(Container container) {
+			super("pool.acquire." + container.name);
+			this.container = container;
+		}
+
+		@Override
+		protected void prepare(int ops) {
+			pool = new BadgeViewPool(context, ops);
+			targets = new View[ops];
+			for (int i = 0; i < ops; i++) {
+				targets[i] = container.addTarget(context);
+			}
+			for (int i = 0; i < ops; i++) {
+				pool.acquire(container.addTarget(context)).detach();
+			}
+		}
+
+		@Override
+		protected Object run(int op) {
+			return pool.acquire(targets[op]);
+		}
+
+		@Override
+		protected void tearDown() {
+			pool.clear();
+			pool = null;
+			targets = null;
+		}
+
+	}
+
+	/**
+	 * Operates on a single badge attached to a target in a LinearLayout.
+	 */
+	private abstract class BadgeBenchmark extends Benchmark {
+
+		BadgeView badge;
+
+		BadgeBenchmark(String name) {
+			super(name);
+		}
+
+		void setUp(BadgeView badge) {
+		}
+
+		@Override
+		protected void prepare(int ops) {
+			LinearLayout parent = new LinearLayout(context);
+			ImageView target = new ImageView(context);
+			parent.addView(target);
+			badge = new BadgeView(context, target);
+			badge.setText("1");
+			setUp(badge);
+		}
+
+		@Override
+		protected void tearDown() {
+			badge.detach();
+			badge = null;
+		}
+
+	}
+
+	public static void main(String[] args) throws Exception {
+
+		String factory = System.getProperty("viewbadger.bench.context");
+		if (factory == null) {
+			System.err.println("Set -Dviewbadger.bench.context to a ContextFactory class");
+			System.exit(2);
+		}
+		run(args, (ContextFactory) Class.forName(factory).newInstance());
+
+	}
+
+	/**
+	 * Run the benchmarks selected by the command line arguments.
+	 */
+	public static void run(String[] args, ContextFactory factory) throws Exception {
+
+		int warmupIterations = 5;
+		int iterations = 10;
+		int batchSize = 1000;
+		Pattern filter = null;
+		for (int i = 0; i < args.length; i++) {
+			if ("-wi".equals(args[i])) {
+				warmupIterations = Integer.parseInt(args[++i]);
+			} else if ("-i".equals(args[i])) {
+				iterations = Integer.parseInt(args[++i]);
+			} else if ("-b".equals(args[i])) {
+				batchSize = Integer.parseInt(args[++i]);
+			} else {
+				filter = Pattern.compile(args[i]);
+			}
+		}
+
+		Context context = factory.createContext();
+
+		new BenchmarkRunner(warmupIterations, iterations, batchSize)
+				.runAll(new BadgeBenchmarks(context).create(), filter);
+
+	}
+
+}
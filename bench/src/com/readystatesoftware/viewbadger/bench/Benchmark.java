@@ -0,0 +1,43 @@
+package com.readystatesoftware.viewbadger.bench;
+
+/**
+ * A benchmarked operation. Each measured batch calls {@link #prepare(int)} untimed,
+ * then times {@link #run(int)} once per operation of the batch.
+ */
+public abstract class Benchmark {
+
+	private final String name;
+
+	public Benchmark(String name) {
+		this.name = name;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	/**
+     * Set up the state for a batch of operations, for example fresh targets that have
+     * not been badged yet. Not timed.
+     *
+     * @param ops the number of operations in the batch.
+     */
+	protected void prepare(int ops) throws Exception {
+	}
+
+	/**
+     * Perform one operation.
+     *
+     * @param op the index of the operation within the batch.
+     * @return a value derived from the operation, consumed so that it cannot be optimized away.
+     */
+	protected abstract Object run(int op) throws Exception;
+
+	/**
+     * Release the state of a batch. Not timed.
+     *
+     */
+	protected void tearDown() throws Exception {
+	}
+
+}
@@ -0,0 +1,104 @@
+package com.readystatesoftware.viewbadger.bench;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Runs benchmarks in warmup and measured iterations and reports the throughput and the
+ * bytes allocated per operation of each one.
+ */
+public class BenchmarkRunner {
+
+	private final int warmupIterations;
+	private final int iterations;
+	private final int batchSize;
+
+	private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+	private final boolean allocationSupported;
+
+	static volatile Object sink;
+
+	public BenchmarkRunner(int warmupIterations, int iterations, int batchSize) {
+		this.warmupIterations = warmupIterations;
+		this.iterations = iterations;
+		this.batchSize = batchSize;
+		allocationSupported = threads instanceof com.sun.management.ThreadMXBean
+				&& ((com.sun.management.ThreadMXBean) threads).isThreadAllocatedMemorySupported();
+		if (allocationSupported) {
+			((com.sun.management.ThreadMXBean) threads).setThreadAllocatedMemoryEnabled(true);
+		}
+	}
+
+	public void runAll(List<Benchmark> benchmarks, Pattern filter) throws Exception {
+		System.out.println(String.format(Locale.US, "%-40s %14s %10s %12s",
+				"Benchmark", "ops/s", "error %", "bytes/op"));
+		for (Benchmark benchmark : benchmarks) {
+			if (filter == null || filter.matcher(benchmark.getName()).find()) {
+				run(benchmark);
+			}
+		}
+	}
+
+	private void run(Benchmark benchmark) throws Exception {
+
+		for (int i = 0; i < warmupIterations; i++) {
+			runBatch(benchmark, null);
+		}
+
+		double[] opsPerSecond = new double[iterations];
+		long allocated = 0;
+		long[] result = new long[2];
+		for (int i = 0; i < iterations; i++) {
+			runBatch(benchmark, result);
+			opsPerSecond[i] = batchSize * 1e9 / Math.max(1, result[0]);
+			allocated += result[1];
+		}
+
+		double mean = 0;
+		for (double v : opsPerSecond) {
+			mean += v;
+		}
+		mean /= iterations;
+		double variance = 0;
+		for (double v : opsPerSecond) {
+			variance += (v - mean) * (v - mean);
+		}
+		double error = iterations > 1 ? Math.sqrt(variance / (iterations - 1)) / mean * 100 : 0;
+		String bytesPerOp = allocationSupported
+				? String.format(Locale.US, "%.1f", (double) allocated / ((long) iterations * batchSize))
+				: "n/a";
+
+		System.out.println(String.format(Locale.US, "%-40s %14.0f %9.1f%% %12s",
+				benchmark.getName(), mean, error, bytesPerOp));
+
+	}
+
+	private void runBatch(Benchmark benchmark, long[] result) throws Exception {
+		benchmark.prepare(batchSize);
+		Object last = null;
+		long bytes = allocatedBytes();
+		long start = System.nanoTime();
+		for (int op = 0; op < batchSize; op++) {
+			last = benchmark.run(op);
+		}
+		long time = System.nanoTime() - start;
+		bytes = allocatedBytes() - bytes;
+		sink = last;
+		benchmark.tearDown();
+		if (result != null) {
+			result[0] = time;
+			result[1] = bytes;
+		}
+	}
+
+	private long allocatedBytes() {
+		if (!allocationSupported) {
+			return 0;
+		}
+		return ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+
+}
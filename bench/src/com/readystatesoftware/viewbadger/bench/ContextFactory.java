@@ -0,0 +1,13 @@
+package com.readystatesoftware.viewbadger.bench;
+
+import android.content.Context;
+
+/**
+ * Supplies the Context badges are created with, from whichever JVM stand-in for the
+ * Android runtime is on the classpath.
+ */
+public interface ContextFactory {
+
+	Context createContext() throws Exception;
+
+}
@@ -0,0 +1,23 @@
+package com.readystatesoftware.viewbadger.bench;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+/**
+ * Runs {@link BadgeBenchmarks} on the main looper of a Robolectric sandbox. The
+ * benchmark arguments are taken from the viewbadger.bench.args system property.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class RobolectricBenchmarks {
+
+	@Test
+	public void run() throws Exception {
+		String args = System.getProperty("viewbadger.bench.args", "").trim();
+		BadgeBenchmarks.run(args.length() == 0 ? new String[0] : args.split("\\s+"),
+				new RobolectricContextFactory());
+	}
+
+}
@@ -0,0 +1,18 @@
+package com.readystatesoftware.viewbadger.bench;
+
+import org.robolectric.RuntimeEnvironment;
+
+import android.content.Context;
+
+/**
+ * Supplies the Robolectric application as the badge Context. Only works inside the
+ * Robolectric sandbox, see {@link RobolectricBenchmarks}.
+ */
+public class RobolectricContextFactory implements ContextFactory {
+
+	@Override
+	public Context createContext() {
+		return RuntimeEnvironment.getApplication();
+	}
+
+}
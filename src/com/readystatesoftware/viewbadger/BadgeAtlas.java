@@ -0,0 +1,322 @@
+package com.readystatesoftware.viewbadger;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.Typeface;
+import android.graphics.drawable.Drawable;
+import android.text.TextPaint;
+
+/**
+ * Pre-rendered badge images for the counts 1 to N in one {@link BadgeStyle}, rasterized
+ * once into a single shared bitmap.
+ *
+ * A {@link BadgeView} or {@link BadgeDrawable} given an atlas draws a covered count by
+ * copying its cell from the bitmap instead of laying out the label and rendering the
+ * background shape. Labels the atlas does not cover, and badges whose colors, text size
+ * or bounds no longer match the atlas, are rendered live as usual.
+ *
+ * Atlases are cached process-wide, one per style. The cache keeps the total size of
+ * the atlas bitmaps within a byte limit, evicting the least recently used atlases
+ * first. Badges keep drawing from an evicted atlas until they are given a new one, so the
+ * limit only bounds the bitmaps held by the cache: an evicted bitmap stays in memory
+ * until no badge references its atlas. To release it, give those badges the atlas
+ * returned by a new call to {@link #get(Context, BadgeStyle, int)}, or none.
+ *
+ * <pre>
+ * BadgeAtlas atlas = BadgeAtlas.get(context, style, 99);
+ * badge.setBadgeAtlas(atlas);
+ * badge.setCount(12); // drawn from the atlas
+ * </pre>
+ */
+public final class BadgeAtlas {
+
+	private static final int DEFAULT_MAX_BYTES = 1024 * 1024;
+	private static final int MAX_WIDTH = 1024;
+	private static final int CELL_SPACING = 1;
+
+	private static int maxBytes = DEFAULT_MAX_BYTES;
+	private static int byteCount;
+	private static int evictionCount;
+
+	private static final LinkedHashMap<BadgeStyle, BadgeAtlas> cache =
+		new LinkedHashMap<BadgeStyle, BadgeAtlas>(4, 0.75f, true);
+
+	private final BadgeStyle style;
+	private final int maxCount;
+	private final float textSize;
+	private final Bitmap bitmap;
+	private final int[] cellLeft;
+	private final int[] cellTop;
+	private final int[] cellWidth;
+	private final int cellHeight;
+
+	private final Rect src = new Rect();
+	private final Rect dst = new Rect();
+
+	private BadgeAtlas(BadgeStyle style, int maxCount, float textSize, Bitmap bitmap,
+			int[] cellLeft, int[] cellTop, int[] cellWidth, int cellHeight) {
+		this.style = style;
+		this.maxCount = maxCount;
+		this.textSize = textSize;
+		this.bitmap = bitmap;
+		this.cellLeft = cellLeft;
+		this.cellTop = cellTop;
+		this.cellWidth = cellWidth;
+		this.cellHeight = cellHeight;
+	}
+
+	/**
+     * Returns the atlas of a style covering at least the counts 1 to maxCount, rendering
+     * and caching it if needed. Styles without a text size are rendered with 14sp labels.
+     *
+     * @param context context used to resolve the default text size.
+     * @param style the badge style.
+     * @param maxCount the largest count to pre-render.
+     * @return the atlas, or null if it would not fit within the cache's byte limit.
+     */
+	public static BadgeAtlas get(Context context, BadgeStyle style, int maxCount) {
+		if (maxCount < 1) {
+			throw new IllegalArgumentException("maxCount must be at least 1");
+		}
+		synchronized (cache) {
+			BadgeAtlas atlas = cache.get(style);
+			if (atlas != null && atlas.maxCount >= maxCount) {
+				return atlas;
+			}
+			if (atlas != null) {
+				remove(style);
+			}
+			float textSize = style.getTextSize();
+			if (textSize <= 0) {
+				textSize = BadgeDrawable.DEFAULT_TEXT_SIZE_SP * context.getResources().getDisplayMetrics().scaledDensity;
+			}
+			atlas = render(style, maxCount, textSize);
+			if (atlas == null) {
+				return null;
+			}
+			cache.put(style, atlas);
+			byteCount += atlas.getByteCount();
+			trimToSize(maxBytes);
+			return atlas;
+		}
+	}
+
+	private static BadgeAtlas render(BadgeStyle style, int maxCount, float textSize) {
+
+		TextPaint paint = new TextPaint(Paint.ANTI_ALIAS_FLAG);
+		paint.setTypeface(style.getTypeface());
+		paint.setTextAlign(Paint.Align.CENTER);
+		paint.setColor(style.getTextColor());
+		paint.setTextSize(textSize);
+		Paint.FontMetricsInt fm = new Paint.FontMetricsInt();
+		paint.getFontMetricsInt(fm);
+
+		int padding = style.getHorizontalPadding();
+		int cellHeight = fm.bottom - fm.top;
+		int[] cellLeft = new int[maxCount];
+		int[] cellTop = new int[maxCount];
+		int[] cellWidth = new int[maxCount];
+		char[] label = new char[12];
+
+		// pack the cells into rows, leaving a gap so filtered draws never sample a neighbour
+		int x = 0;
+		int y = 0;
+		int width = 0;
+		for (int i = 0; i < maxCount; i++) {
+			int len = BadgeView.formatInt(i + 1, label);
+			int w = (int) Math.ceil(paint.measureText(label, 0, len)) + 2 * padding;
+			if (x > 0 && x + w > MAX_WIDTH) {
+				x = 0;
+				y += cellHeight + CELL_SPACING;
+			}
+			cellLeft[i] = x;
+			cellTop[i] = y;
+			cellWidth[i] = w;
+			x += w + CELL_SPACING;
+			width = Math.max(width, x - CELL_SPACING);
+		}
+		int height = y + cellHeight;
+
+		if ((long) width * height * 4 > maxBytes) {
+			return null;
+		}
+
+		Bitmap bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+		Canvas canvas = new Canvas(bitmap);
+		Drawable bg = style.newBackground();
+		for (int i = 0; i < maxCount; i++) {
+			int left = cellLeft[i];
+			int top = cellTop[i];
+			bg.setBounds(left, top, left + cellWidth[i], top + cellHeight);
+			bg.draw(canvas);
+			int len = BadgeView.formatInt(i + 1, label);
+			canvas.drawText(label, 0, len, left + cellWidth[i] / 2f, top - fm.top, paint);
+		}
+
+		return new BadgeAtlas(style, maxCount, textSize, bitmap, cellLeft, cellTop, cellWidth, cellHeight);
+
+	}
+
+	/**
+     * Does this atlas contain a pre-rendered image of the given count?
+     *
+     * @param count the count to look up.
+     */
+	public boolean contains(int count) {
+		return count >= 1 && count <= maxCount;
+	}
+
+	/**
+     * Returns the width in pixels of the pre-rendered image of a count.
+     *
+     * @param count a count contained in this atlas.
+     */
+	public int getCellWidth(int count) {
+		return cellWidth[count - 1];
+	}
+
+	/**
+     * Returns the height in pixels of every pre-rendered image.
+     *
+     */
+	public int getCellHeight() {
+		return cellHeight;
+	}
+
+	/**
+     * Returns the style this atlas was rendered from.
+     *
+     */
+	public BadgeStyle getBadgeStyle() {
+		return style;
+	}
+
+	/**
+     * Returns the largest pre-rendered count.
+     *
+     */
+	public int getMaxCount() {
+		return maxCount;
+	}
+
+	/**
+     * Returns the label text size in pixels the images were rendered with.
+     *
+     */
+	public float getTextSize() {
+		return textSize;
+	}
+
+	/**
+     * Returns the size of the atlas bitmap in bytes.
+     *
+     */
+	public int getByteCount() {
+		return bitmap.getRowBytes() * bitmap.getHeight();
+	}
+
+	boolean matches(int badgeColor, int textColor, float textSize, Typeface typeface) {
+		return badgeColor == style.getBadgeBackgroundColor() && textColor == style.getTextColor()
+				&& textSize == this.textSize && typeface == style.getTypeface();
+	}
+
+	void draw(Canvas canvas, int count, int left, int top, Paint paint) {
+		// only called while drawing on the main thread, so the rects can be shared
+		int i = count - 1;
+		src.set(cellLeft[i], cellTop[i], cellLeft[i] + cellWidth[i], cellTop[i] + cellHeight);
+		dst.set(left, top, left + cellWidth[i], top + cellHeight);
+		canvas.drawBitmap(bitmap, src, dst, paint);
+	}
+
+	/**
+     * Set the maximum total size of the cached atlas bitmaps, evicting the least recently
+     * used atlases if the cache is currently larger. Atlases still set on badges are not
+     * freed by eviction, see the class documentation.
+     *
+     * @param bytes the maximum size in bytes.
+     */
+	public static void setMaxBytes(int bytes) {
+		synchronized (cache) {
+			maxBytes = bytes;
+			trimToSize(bytes);
+		}
+	}
+
+	/**
+     * Returns the maximum total size of the cached atlas bitmaps in bytes.
+     *
+     */
+	public static int getMaxBytes() {
+		synchronized (cache) {
+			return maxBytes;
+		}
+	}
+
+	/**
+     * Returns the total size of the cached atlas bitmaps in bytes.
+     *
+     */
+	public static int getTotalByteCount() {
+		synchronized (cache) {
+			return byteCount;
+		}
+	}
+
+	/**
+     * Returns the number of cached atlases.
+     *
+     */
+	public static int size() {
+		synchronized (cache) {
+			return cache.size();
+		}
+	}
+
+	/**
+     * Returns the number of atlases evicted to keep the cache within its byte limit.
+     *
+     */
+	public static int getEvictionCount() {
+		synchronized (cache) {
+			return evictionCount;
+		}
+	}
+
+	/**
+     * Remove all cached atlases and reset the counters. Badges already given an atlas
+     * keep drawing from it.
+     *
+     */
+	public static void clear() {
+		synchronized (cache) {
+			cache.clear();
+			byteCount = 0;
+			evictionCount = 0;
+		}
+	}
+
+	private static void remove(BadgeStyle style) {
+		BadgeAtlas atlas = cache.remove(style);
+		if (atlas != null) {
+			byteCount -= atlas.getByteCount();
+		}
+	}
+
+	private static void trimToSize(int bytes) {
+		Iterator<Map.Entry<BadgeStyle, BadgeAtlas>> it = cache.entrySet().iterator();
+		while (byteCount > bytes && it.hasNext()) {
+			BadgeAtlas atlas = it.next().getValue();
+			it.remove();
+			byteCount -= atlas.getByteCount();
+			evictionCount++;
+		}
+	}
+
+}
@@ -0,0 +1,219 @@
+package com.readystatesoftware.viewbadger;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import android.content.Context;
+import android.view.View;
+import android.view.ViewGroup;
+import android.view.ViewParent;
+import android.widget.TabWidget;
+
+/**
+ * Attaches badges to many targets at once.
+ *
+ * Targets are collected with the add methods and attached together by {@link #commit()}.
+ * Each wrapper is filled before it is added to the hierarchy, targets are removed
+ * without requesting a layout, and every affected parent is invalidated once at the
+ * end, so the whole transaction costs a single layout pass. Targets that are already
+ * badged keep their badge. Must be used on the main thread.
+ *
+ * <pre>
+ * BadgeAttachTransaction tx = new BadgeAttachTransaction(this);
+ * tx.addChildren(toolbar, style);
+ * tx.addTabs(getTabWidget(), style);
+ * List&lt;BadgeView&gt; badges = tx.commit();
+ * Log.d(TAG, "attached in " + tx.getAttachTimeNanos() + "ns");
+ * </pre>
+ */
+public class BadgeAttachTransaction {
+
+	private final Context context;
+	private final BadgeOverlayLayout overlay;
+	private final ArrayList<Spec> specs = new ArrayList<Spec>();
+	private final ArrayList<View> dirtyParents = new ArrayList<View>();
+
+	private long attachTimeNanos;
+
+	private static class Spec {
+		View target;
+		int tabIndex;
+		BadgeStyle style;
+		CharSequence text;
+	}
+
+	/**
+     * Constructor -
+     *
+     * create a transaction that wraps each target in a new container.
+     *
+     * @param context context for new badges.
+     */
+	public BadgeAttachTransaction(Context context) {
+		this(context, null);
+	}
+
+	/**
+     * Constructor -
+     *
+     * create a transaction that attaches badges drawn by an overlay, leaving the view
+     * hierarchy untouched.
+     *
+     * @param context context for new badges.
+     * @param overlay a BadgeOverlayLayout that is an ancestor of every target, or null
+     * to wrap each target.
+     */
+	public BadgeAttachTransaction(Context context, BadgeOverlayLayout overlay) {
+		this.context = context;
+		this.overlay = overlay;
+	}
+
+	/**
+     * Attach a hidden badge to a target View.
+     *
+     * @param target the View to attach the badge to.
+     * @param style the badge style, or null for the default style.
+     */
+	public BadgeAttachTransaction add(View target, BadgeStyle style) {
+		return add(target, 0, style, null);
+	}
+
+	/**
+     * Attach a badge to a target View.
+     *
+     * @param target the View to attach the badge to.
+     * @param style the badge style, or null for the default style.
+     * @param text the badge label to show, or null to leave the badge hidden.
+     */
+	public BadgeAttachTransaction add(View target, BadgeStyle style, CharSequence text) {
+		return add(target, 0, style, text);
+	}
+
+	/**
+     * Attach a badge to a {@link android.widget.TabWidget} tab.
+     *
+     * @param target the TabWidget to attach the badge to.
+     * @param index the position of the tab within the target.
+     * @param style the badge style, or null for the default style.
+     * @param text the badge label to show, or null to leave the badge hidden.
+     */
+	public BadgeAttachTransaction add(TabWidget target, int index, BadgeStyle style, CharSequence text) {
+		return add((View) target, index, style, text);
+	}
+
+	/**
+     * Attach a hidden badge to every child of a ViewGroup.
+     *
+     * @param parent the ViewGroup whose children to badge.
+     * @param style the badge style, or null for the default style.
+     */
+	public BadgeAttachTransaction addChildren(ViewGroup parent, BadgeStyle style) {
+		for (int i = 0, n = parent.getChildCount(); i < n; i++) {
+			add(parent.getChildAt(i), 0, style, null);
+		}
+		return this;
+	}
+
+	/**
+     * Attach a hidden badge to every tab of a TabWidget.
+     *
+     * @param target the TabWidget whose tabs to badge.
+     * @param style the badge style, or null for the default style.
+     */
+	public BadgeAttachTransaction addTabs(TabWidget target, BadgeStyle style) {
+		for (int i = 0, n = target.getTabCount(); i < n; i++) {
+			add(target, i, style, null);
+		}
+		return this;
+	}
+
+	private BadgeAttachTransaction add(View target, int tabIndex, BadgeStyle style, CharSequence text) {
+		Spec spec = new Spec();
+		spec.target = target;
+		spec.tabIndex = tabIndex;
+		spec.style = style;
+		spec.text = text;
+		specs.add(spec);
+		return this;
+	}
+
+	/**
+     * Returns the number of targets waiting to be attached.
+     *
+     */
+	public int size() {
+		return specs.size();
+	}
+
+	/**
+     * Attach badges to every added target, in the order they were added.
+     *
+     * @return the badges of the added targets, in the same order.
+     */
+	public List<BadgeView> commit() {
+
+		long start = System.nanoTime();
+		ArrayList<BadgeView> badges = new ArrayList<BadgeView>(specs.size());
+
+		for (int i = 0, n = specs.size(); i < n; i++) {
+			Spec spec = specs.get(i);
+			BadgeView badge = attach(spec);
+			if (spec.text != null) {
+				badge.setText(spec.text);
+				badge.show();
+			}
+			badges.add(badge);
+		}
+
+		for (int i = 0, n = dirtyParents.size(); i < n; i++) {
+			dirtyParents.get(i).invalidate();
+		}
+		dirtyParents.clear();
+		specs.clear();
+
+		attachTimeNanos = System.nanoTime() - start;
+		return badges;
+
+	}
+
+	private BadgeView attach(Spec spec) {
+
+		View target = spec.target;
+		View tab = target instanceof TabWidget ? ((TabWidget) target).getChildTabViewAt(spec.tabIndex) : target;
+		BadgeView badge = BadgeView.getBadge(tab);
+		if (badge != null) {
+			if (spec.style != null) {
+				badge.setBadgeStyle(spec.style);
+			}
+			return badge;
+		}
+
+		badge = new BadgeView(context, spec.style);
+
+		View dirty;
+		if (overlay != null) {
+			dirty = overlay;
+		} else if (tab != target) {
+			dirty = tab;
+		} else {
+			ViewParent parent = target.getParent();
+			dirty = parent instanceof View ? (View) parent : null;
+		}
+		badge.attachTo(target, spec.tabIndex, overlay, false);
+		if (dirty != null && !dirtyParents.contains(dirty)) {
+			dirtyParents.add(dirty);
+		}
+
+		return badge;
+
+	}
+
+	/**
+     * Returns how long the last commit took to attach its badges, in nanoseconds.
+     *
+     */
+	public long getAttachTimeNanos() {
+		return attachTimeNanos;
+	}
+
+}
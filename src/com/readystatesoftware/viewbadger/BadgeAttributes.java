@@ -0,0 +1,110 @@
+package com.readystatesoftware.viewbadger;
+
+import java.util.Arrays;
+
+import android.content.Context;
+import android.content.res.Resources;
+
+/**
+ * The attribute ids of the badge attributes declared in res/values/attrs.xml, looked up
+ * by name in the app's resources.
+ *
+ * The library is also distributed as a jar without resources, in which case the app
+ * assigns the attribute ids when it includes a copy of attrs.xml, and the library's own
+ * R class is either missing or holds the wrong ids. If the app declares none of the
+ * attributes, {@link #style(Context)} and {@link #view(Context)} return null and
+ * badges ignore their XML attributes rather than failing to inflate.
+ */
+final class BadgeAttributes {
+
+	private static final String[] STYLE_NAMES = {"badgePosition", "badgeMargin", "badgeMarginHorizontal",
+		"badgeMarginVertical", "badgeColor", "badgeTextColor", "badgeCornerRadius", "badgeDotRadius"};
+	static final int STYLE_POSITION = 0;
+	static final int STYLE_MARGIN = 1;
+	static final int STYLE_MARGIN_HORIZONTAL = 2;
+	static final int STYLE_MARGIN_VERTICAL = 3;
+	static final int STYLE_COLOR = 4;
+	static final int STYLE_TEXT_COLOR = 5;
+	static final int STYLE_CORNER_RADIUS = 6;
+	static final int STYLE_DOT_RADIUS = 7;
+
+	private static final String[] VIEW_NAMES = {"badgeTarget", "badgeMode", "badgeDot"};
+	static final int VIEW_TARGET = 0;
+	static final int VIEW_MODE = 1;
+	static final int VIEW_DOT = 2;
+
+	private static String packageName;
+	private static BadgeAttributes style;
+	private static BadgeAttributes view;
+
+	/**
+	 * The attribute ids in ascending order, as obtainStyledAttributes requires.
+	 */
+	final int[] attrs;
+	private final int[] index;
+
+	private BadgeAttributes(int[] attrs, int[] index) {
+		this.attrs = attrs;
+		this.index = index;
+	}
+
+	/**
+	 * Returns the position of a named attribute in {@link #attrs}, and so in a TypedArray
+	 * obtained for them.
+	 */
+	int index(int name) {
+		return index[name];
+	}
+
+	/**
+	 * Returns the BadgeStyle attributes, or null if the app does not declare them.
+	 */
+	static BadgeAttributes style(Context context) {
+		synchronized (BadgeAttributes.class) {
+			resolve(context);
+			return style;
+		}
+	}
+
+	/**
+	 * Returns the BadgeView attributes, or null if the app does not declare them.
+	 */
+	static BadgeAttributes view(Context context) {
+		synchronized (BadgeAttributes.class) {
+			resolve(context);
+			return view;
+		}
+	}
+
+	private static void resolve(Context context) {
+		String name = context.getPackageName();
+		if (!name.equals(packageName)) {
+			Resources res = context.getResources();
+			style = resolve(res, name, STYLE_NAMES);
+			view = resolve(res, name, VIEW_NAMES);
+			packageName = name;
+		}
+	}
+
+	private static BadgeAttributes resolve(Resources res, String packageName, String[] names) {
+		int n = names.length;
+		// sort the ids, keeping the position of each name in the low bits
+		long[] sorted = new long[n];
+		for (int i = 0; i < n; i++) {
+			int id = res.getIdentifier(names[i], "attr", packageName);
+			if (id == 0) {
+				return null;
+			}
+			sorted[i] = ((long) id << 32) | i;
+		}
+		Arrays.sort(sorted);
+		int[] attrs = new int[n];
+		int[] index = new int[n];
+		for (int i = 0; i < n; i++) {
+			attrs[i] = (int) (sorted[i] >>> 32);
+			index[(int) sorted[i]] = i;
+		}
+		return new BadgeAttributes(attrs, index);
+	}
+
+}
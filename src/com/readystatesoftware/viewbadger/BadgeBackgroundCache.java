@@ -0,0 +1,168 @@
+package com.readystatesoftware.viewbadger;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import android.graphics.drawable.Drawable;
+import android.graphics.drawable.Drawable.ConstantState;
+import android.graphics.drawable.ShapeDrawable;
+import android.graphics.drawable.shapes.RoundRectShape;
+
+/**
+ * A process-wide cache of default badge backgrounds keyed by color, corner radius and
+ * display density.
+ *
+ * Drawables handed out by the cache share the {@link android.graphics.drawable.Drawable.ConstantState}
+ * (and therefore the shape and paint) of a single cached instance. Call
+ * {@link android.graphics.drawable.Drawable#mutate()} before changing the paint of a
+ * returned drawable. The least recently used entries are evicted once the cache
+ * reaches its maximum size.
+ */
+public final class BadgeBackgroundCache {
+
+	private static final int DEFAULT_MAX_SIZE = 32;
+
+	private static int maxSize = DEFAULT_MAX_SIZE;
+	private static int hitCount;
+	private static int missCount;
+	private static int evictionCount;
+
+	private static final LinkedHashMap<Long, ConstantState> cache =
+		new LinkedHashMap<Long, ConstantState>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Long, ConstantState> eldest) {
+				if (size() > maxSize) {
+					evictionCount++;
+					return true;
+				}
+				return false;
+			}
+		};
+
+	private BadgeBackgroundCache() {
+	}
+
+	/**
+     * Returns a badge background drawable for the given color, corner radius and density,
+     * creating and caching its shared state on first use.
+     *
+     * @param color the badge background color.
+     * @param cornerRadius the corner radius in pixels.
+     * @param densityDpi the display density the radius was computed for.
+     */
+	public static Drawable get(int color, int cornerRadius, int densityDpi) {
+		Long key = Long.valueOf(((long) color << 32) | ((cornerRadius & 0xFFFFL) << 16) | (densityDpi & 0xFFFFL));
+		synchronized (cache) {
+			ConstantState state = cache.get(key);
+			if (state != null) {
+				hitCount++;
+				return state.newDrawable();
+			}
+			missCount++;
+			ShapeDrawable drawable = create(color, cornerRadius);
+			state = drawable.getConstantState();
+			if (state == null) {
+				return drawable;
+			}
+			cache.put(key, state);
+			return state.newDrawable();
+		}
+	}
+
+	private static ShapeDrawable create(int color, int r) {
+
+		float[] outerR = new float[] {r, r, r, r, r, r, r, r};
+
+		RoundRectShape rr = new RoundRectShape(outerR, null, null);
+		ShapeDrawable drawable = new ShapeDrawable(rr);
+		drawable.getPaint().setColor(color);
+
+		return drawable;
+
+	}
+
+	/**
+     * Set the maximum number of cached backgrounds, evicting the least recently used
+     * entries if the cache is currently larger.
+     *
+     * @param size the maximum number of entries, at least 1.
+     */
+	public static void setMaxSize(int size) {
+		if (size < 1) {
+			throw new IllegalArgumentException("size must be at least 1");
+		}
+		synchronized (cache) {
+			maxSize = size;
+			while (cache.size() > maxSize) {
+				Long eldest = cache.keySet().iterator().next();
+				cache.remove(eldest);
+				evictionCount++;
+			}
+		}
+	}
+
+	/**
+     * Returns the maximum number of cached backgrounds.
+     *
+     */
+	public static int getMaxSize() {
+		synchronized (cache) {
+			return maxSize;
+		}
+	}
+
+	/**
+     * Returns the number of cached backgrounds.
+     *
+     */
+	public static int size() {
+		synchronized (cache) {
+			return cache.size();
+		}
+	}
+
+	/**
+     * Returns the number of lookups that were served from the cache.
+     *
+     */
+	public static int getHitCount() {
+		synchronized (cache) {
+			return hitCount;
+		}
+	}
+
+	/**
+     * Returns the number of lookups that had to create a new background.
+     *
+     */
+	public static int getMissCount() {
+		synchronized (cache) {
+			return missCount;
+		}
+	}
+
+	/**
+     * Returns the number of backgrounds evicted to keep the cache within its maximum size.
+     *
+     */
+	public static int getEvictionCount() {
+		synchronized (cache) {
+			return evictionCount;
+		}
+	}
+
+	/**
+     * Remove all cached backgrounds and reset the counters.
+     *
+     */
+	public static void clear() {
+		synchronized (cache) {
+			cache.clear();
+			hitCount = 0;
+			missCount = 0;
+			evictionCount = 0;
+		}
+	}
+
+}
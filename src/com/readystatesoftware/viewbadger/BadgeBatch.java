@@ -0,0 +1,232 @@
+package com.readystatesoftware.viewbadger;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+import android.os.Handler;
+import android.os.Looper;
+
+/**
+ * Collects changes to many {@link BadgeView}s and applies them together in a single
+ * main thread callback.
+ *
+ * Changes to the same badge are merged, so only the last label and visibility set on
+ * a badge before the batch is applied take effect. Because every change is applied
+ * within one message, the view hierarchy performs at most one layout pass for the
+ * whole batch.
+ *
+ * <pre>
+ * BadgeBatch batch = new BadgeBatch();
+ * batch.setCount(inboxBadge, 12).setCount(chatBadge, 3).hide(alertBadge);
+ * batch.commit();
+ * </pre>
+ */
+public class BadgeBatch {
+
+	private static final int VISIBILITY_UNCHANGED = 0;
+	private static final int VISIBILITY_SHOW = 1;
+	private static final int VISIBILITY_HIDE = 2;
+
+	private static final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+	private final HashMap<BadgeView, Update> pending = new HashMap<BadgeView, Update>();
+	private ArrayList<Update> order = new ArrayList<Update>();
+	private ArrayList<Update> spareOrder = new ArrayList<Update>();
+	private final ArrayList<Update> recycled = new ArrayList<Update>();
+
+	private boolean scheduled;
+
+	private final Runnable applyRunnable = new Runnable() {
+		@Override
+		public void run() {
+			apply();
+		}
+	};
+
+	private static class Update {
+		BadgeView badge;
+		CharSequence text;
+		boolean hasText;
+		int count;
+		boolean hasCount;
+		int visibility;
+		boolean animate;
+	}
+
+	/**
+     * Set the label of a badge when the batch is applied.
+     *
+     * @param badge the badge to update.
+     * @param text the new label.
+     */
+	public BadgeBatch setText(BadgeView badge, CharSequence text) {
+		synchronized (pending) {
+			Update update = obtain(badge);
+			update.text = text;
+			update.hasText = true;
+			update.hasCount = false;
+		}
+		return this;
+	}
+
+	/**
+     * Set the numeric label of a badge when the batch is applied.
+     *
+     * @param badge the badge to update.
+     * @param count the count to display.
+     */
+	public BadgeBatch setCount(BadgeView badge, int count) {
+		synchronized (pending) {
+			Update update = obtain(badge);
+			update.count = count;
+			update.hasCount = true;
+			update.hasText = false;
+			update.text = null;
+		}
+		return this;
+	}
+
+	/**
+     * Make a badge visible when the batch is applied.
+     *
+     * @param badge the badge to show.
+     */
+	public BadgeBatch show(BadgeView badge) {
+		return setVisibility(badge, VISIBILITY_SHOW, false);
+	}
+
+	/**
+     * Make a badge visible when the batch is applied.
+     *
+     * @param badge the badge to show.
+     * @param animate flag to apply the default fade-in animation.
+     */
+	public BadgeBatch show(BadgeView badge, boolean animate) {
+		return setVisibility(badge, VISIBILITY_SHOW, animate);
+	}
+
+	/**
+     * Make a badge non-visible when the batch is applied.
+     *
+     * @param badge the badge to hide.
+     */
+	public BadgeBatch hide(BadgeView badge) {
+		return setVisibility(badge, VISIBILITY_HIDE, false);
+	}
+
+	/**
+     * Make a badge non-visible when the batch is applied.
+     *
+     * @param badge the badge to hide.
+     * @param animate flag to apply the default fade-out animation.
+     */
+	public BadgeBatch hide(BadgeView badge, boolean animate) {
+		return setVisibility(badge, VISIBILITY_HIDE, animate);
+	}
+
+	private BadgeBatch setVisibility(BadgeView badge, int visibility, boolean animate) {
+		synchronized (pending) {
+			Update update = obtain(badge);
+			update.visibility = visibility;
+			update.animate = animate;
+		}
+		return this;
+	}
+
+	/**
+     * Schedule the pending changes to be applied on the main thread. Committing again
+     * before the batch has been applied does not schedule a second callback.
+     *
+     */
+	public void commit() {
+		synchronized (pending) {
+			if (scheduled || order.isEmpty()) {
+				return;
+			}
+			scheduled = true;
+		}
+		mainHandler.post(applyRunnable);
+	}
+
+	/**
+     * Apply the pending changes immediately. Must be called on the main thread.
+     *
+     */
+	public void apply() {
+		ArrayList<Update> applying;
+		synchronized (pending) {
+			// take the pending changes so that view code runs without holding the lock
+			scheduled = false;
+			applying = order;
+			order = spareOrder != null ? spareOrder : new ArrayList<Update>();
+			spareOrder = null;
+			pending.clear();
+			mainHandler.removeCallbacks(applyRunnable);
+		}
+
+		for (int i = 0, n = applying.size(); i < n; i++) {
+			applyUpdate(applying.get(i));
+		}
+
+		synchronized (pending) {
+			for (int i = 0, n = applying.size(); i < n; i++) {
+				recycle(applying.get(i));
+			}
+			applying.clear();
+			if (spareOrder == null) {
+				spareOrder = applying;
+			}
+		}
+	}
+
+	/**
+     * Returns the number of badges with pending changes.
+     *
+     */
+	public int size() {
+		synchronized (pending) {
+			return order.size();
+		}
+	}
+
+	private static void applyUpdate(Update update) {
+		BadgeView badge = update.badge;
+		if (update.hasCount) {
+			badge.setCount(update.count);
+		} else if (update.hasText) {
+			badge.setText(update.text);
+		}
+		if (update.visibility == VISIBILITY_SHOW) {
+			if (!badge.isShown()) {
+				badge.show(update.animate);
+			}
+		} else if (update.visibility == VISIBILITY_HIDE) {
+			if (badge.isShown()) {
+				badge.hide(update.animate);
+			}
+		}
+	}
+
+	private Update obtain(BadgeView badge) {
+		Update update = pending.get(badge);
+		if (update == null) {
+			int last = recycled.size() - 1;
+			update = last >= 0 ? recycled.remove(last) : new Update();
+			update.badge = badge;
+			pending.put(badge, update);
+			order.add(update);
+		}
+		return update;
+	}
+
+	private void recycle(Update update) {
+		update.badge = null;
+		update.text = null;
+		update.hasText = false;
+		update.hasCount = false;
+		update.visibility = VISIBILITY_UNCHANGED;
+		update.animate = false;
+		recycled.add(update);
+	}
+
+}
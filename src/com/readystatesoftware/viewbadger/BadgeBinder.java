@@ -0,0 +1,239 @@
+package com.readystatesoftware.viewbadger;
+
+import android.text.TextUtils;
+
+/**
+ * Keeps badge state for adapter items, keyed by item id, and binds it to recycled
+ * {@link BadgeView}s.
+ *
+ * {@link #bind(BadgeView, long)} compares the item's state with what the recycled badge
+ * already displays and only touches the badge for the label, color or visibility that
+ * actually differ. Items without any state are bound as hidden badges.
+ *
+ * <pre>
+ * public View getView(int position, View convertView, ViewGroup parent) {
+ *     ...
+ *     binder.bind(holder.badge, getItemId(position));
+ *     return convertView;
+ * }
+ * </pre>
+ */
+public class BadgeBinder {
+
+	private final StateMap states = new StateMap();
+
+	private static class State {
+		// a TextView's text is never null, so compare against the empty label
+		CharSequence text = "";
+		int count;
+		boolean hasCount;
+		int color;
+		boolean hasColor;
+		boolean shown;
+	}
+
+	/**
+	 * Maps item ids to states in sorted parallel arrays, so lookups do not box the id.
+	 */
+	private static final class StateMap {
+
+		private long[] keys = new long[16];
+		private State[] values = new State[16];
+		private int size;
+
+		State get(long key) {
+			int i = indexOf(key);
+			return i >= 0 ? values[i] : null;
+		}
+
+		void put(long key, State value) {
+			int i = indexOf(key);
+			if (i >= 0) {
+				values[i] = value;
+				return;
+			}
+			i = ~i;
+			if (size == keys.length) {
+				long[] newKeys = new long[size * 2];
+				State[] newValues = new State[size * 2];
+				System.arraycopy(keys, 0, newKeys, 0, size);
+				System.arraycopy(values, 0, newValues, 0, size);
+				keys = newKeys;
+				values = newValues;
+			}
+			System.arraycopy(keys, i, keys, i + 1, size - i);
+			System.arraycopy(values, i, values, i + 1, size - i);
+			keys[i] = key;
+			values[i] = value;
+			size++;
+		}
+
+		void remove(long key) {
+			int i = indexOf(key);
+			if (i >= 0) {
+				System.arraycopy(keys, i + 1, keys, i, size - i - 1);
+				System.arraycopy(values, i + 1, values, i, size - i - 1);
+				size--;
+				values[size] = null;
+			}
+		}
+
+		void clear() {
+			for (int i = 0; i < size; i++) {
+				values[i] = null;
+			}
+			size = 0;
+		}
+
+		private int indexOf(long key) {
+			int lo = 0;
+			int hi = size - 1;
+			while (lo <= hi) {
+				int mid = (lo + hi) >>> 1;
+				long k = keys[mid];
+				if (k < key) {
+					lo = mid + 1;
+				} else if (k > key) {
+					hi = mid - 1;
+				} else {
+					return mid;
+				}
+			}
+			return ~lo;
+		}
+
+	}
+
+	/**
+     * Set the badge label for an item.
+     *
+     * @param itemId the adapter item id.
+     * @param text the new label.
+     */
+	public void setText(long itemId, CharSequence text) {
+		State state = obtain(itemId);
+		state.text = text == null ? "" : text;
+		state.hasCount = false;
+	}
+
+	/**
+     * Set the numeric badge label for an item.
+     *
+     * @param itemId the adapter item id.
+     * @param count the count to display.
+     */
+	public void setCount(long itemId, int count) {
+		State state = obtain(itemId);
+		state.count = count;
+		state.hasCount = true;
+		state.text = null;
+	}
+
+	/**
+     * Set the badge background color for an item. Badges bound to items without a color
+     * show the background color of their {@link BadgeStyle}.
+     *
+     * @param itemId the adapter item id.
+     * @param color the badge background color.
+     */
+	public void setBadgeBackgroundColor(long itemId, int color) {
+		State state = obtain(itemId);
+		state.color = color;
+		state.hasColor = true;
+	}
+
+	/**
+     * Make the badge for an item visible.
+     *
+     * @param itemId the adapter item id.
+     */
+	public void show(long itemId) {
+		obtain(itemId).shown = true;
+	}
+
+	/**
+     * Make the badge for an item non-visible.
+     *
+     * @param itemId the adapter item id.
+     */
+	public void hide(long itemId) {
+		State state = states.get(itemId);
+		if (state != null) {
+			state.shown = false;
+		}
+	}
+
+	/**
+     * Is the badge for an item visible?
+     *
+     * @param itemId the adapter item id.
+     */
+	public boolean isShown(long itemId) {
+		State state = states.get(itemId);
+		return state != null && state.shown;
+	}
+
+	/**
+     * Remove the badge state for an item.
+     *
+     * @param itemId the adapter item id.
+     */
+	public void remove(long itemId) {
+		states.remove(itemId);
+	}
+
+	/**
+     * Remove the badge state for every item.
+     *
+     */
+	public void clear() {
+		states.clear();
+	}
+
+	/**
+     * Bind the state of an item to a (possibly recycled) badge, changing only what differs
+     * from what the badge already displays.
+     *
+     * @param badge the badge to bind.
+     * @param itemId the adapter item id.
+     */
+	public void bind(BadgeView badge, long itemId) {
+
+		State state = states.get(itemId);
+		if (state == null || !state.shown) {
+			if (badge.isShown()) {
+				badge.hide();
+			}
+			return;
+		}
+
+		if (state.hasCount) {
+			if (!badge.isCounter() || badge.getCount() != state.count) {
+				badge.setCount(state.count);
+			}
+		} else if (!TextUtils.equals(badge.getText(), state.text)) {
+			badge.setText(state.text);
+		}
+
+		// restore the style color so a recycled badge does not keep the previous item's color
+		int color = state.hasColor ? state.color : badge.getBadgeStyle().getBadgeBackgroundColor();
+		if (badge.getBadgeBackgroundColor() != color) {
+			badge.setBadgeBackgroundColor(color);
+		}
+
+		if (!badge.isShown()) {
+			badge.show();
+		}
+
+	}
+
+	private State obtain(long itemId) {
+		State state = states.get(itemId);
+		if (state == null) {
+			state = new State();
+			states.put(itemId, state);
+		}
+		return state;
+	}
+
+}
@@ -0,0 +1,434 @@
+package com.readystatesoftware.viewbadger;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.ColorFilter;
+import android.graphics.Paint;
+import android.graphics.PixelFormat;
+import android.graphics.Rect;
+import android.graphics.drawable.Drawable;
+import android.text.TextPaint;
+import android.text.TextUtils;
+import android.view.Gravity;
+
+/**
+ * A lightweight badge that paints the default {@link BadgeView} background and label
+ * directly, without creating any Views. It can be set on an {@link android.widget.ImageView},
+ * used as a compound drawable or layered into a row background.
+ *
+ * The badge is drawn at its intrinsic size, positioned within the drawable bounds using
+ * one of the BadgeView POSITION_* constants. Updating the label only invalidates the
+ * drawable; a host that sized itself from the intrinsic size must be re-laid out by the
+ * caller if the label width changes.
+ */
+public class BadgeDrawable extends Drawable {
+
+	static final int DEFAULT_TEXT_SIZE_SP = 14;
+
+	private final TextPaint textPaint;
+	private final Paint.FontMetricsInt fontMetrics = new Paint.FontMetricsInt();
+	private final Rect badgeRect = new Rect();
+	private final Rect container = new Rect();
+	private final Paint atlasPaint = new Paint();
+	private final Paint dotPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+
+	private final int densityDpi;
+
+	private Drawable badgeBg;
+	
+	private BadgeAtlas atlas;
+
+	private char[] text = new char[8];
+	private int textLength;
+	private int textWidth;
+	private int textCount;
+
+	private int badgePosition;
+	private int badgeMarginH;
+	private int badgeMarginV;
+	private int badgeColor;
+	private int textColor;
+	private int cornerRadius;
+	private int paddingH;
+	private int dotRadius;
+	private boolean dotMode;
+
+	private int alpha = 255;
+	private ColorFilter colorFilter;
+	private boolean isShown;
+
+	/**
+     * Constructor -
+     *
+     * create a new BadgeDrawable with the default BadgeView appearance.
+     *
+     * @param context context used to resolve the display density.
+     */
+	public BadgeDrawable(Context context) {
+		this(context, BadgeStyle.getDefault(context));
+		// fill the drawable bounds, which usually match the intrinsic size
+		badgePosition = BadgeView.POSITION_CENTER;
+		badgeMarginH = 0;
+		badgeMarginV = 0;
+	}
+
+	/**
+     * Constructor -
+     *
+     * create a new BadgeDrawable with the given style, positioned within the drawable 
+     * bounds using the style's position and margins.
+     *
+     * @param context context used to resolve the default text size.
+     * @param style the badge style.
+     */
+	public BadgeDrawable(Context context, BadgeStyle style) {
+
+		densityDpi = style.getDensityDpi();
+
+		textPaint = new TextPaint(Paint.ANTI_ALIAS_FLAG);
+		textPaint.setTypeface(style.getTypeface());
+		textPaint.setTextAlign(Paint.Align.CENTER);
+		textColor = style.getTextColor();
+		textPaint.setColor(textColor);
+		float textSize = style.getTextSize();
+		if (textSize <= 0) {
+			textSize = DEFAULT_TEXT_SIZE_SP * context.getResources().getDisplayMetrics().scaledDensity;
+		}
+		textPaint.setTextSize(textSize);
+		textPaint.getFontMetricsInt(fontMetrics);
+
+		badgePosition = style.getBadgePosition();
+		badgeMarginH = style.getHorizontalBadgeMargin();
+		badgeMarginV = style.getVerticalBadgeMargin();
+		badgeColor = style.getBadgeBackgroundColor();
+		cornerRadius = style.getCornerRadius();
+		paddingH = style.getHorizontalPadding();
+		dotRadius = style.getDotRadius();
+		badgeBg = style.newBackground();
+
+		isShown = true;
+
+	}
+
+	/**
+     * Set the badge label.
+     *
+     * @param label the new label, or null for no label.
+     */
+	public void setText(CharSequence label) {
+		int len = label == null ? 0 : label.length();
+		ensureCapacity(len);
+		if (len > 0) {
+			TextUtils.getChars(label, 0, len, text, 0);
+		}
+		onTextChanged(len);
+	}
+
+	/**
+     * Set the badge label from a region of a char array. The characters are copied, so
+     * the caller may reuse the array.
+     *
+     * @param label the source characters.
+     * @param start the first character to use.
+     * @param len the number of characters to use.
+     */
+	public void setText(char[] label, int start, int len) {
+		ensureCapacity(len);
+		System.arraycopy(label, start, text, 0, len);
+		onTextChanged(len);
+	}
+
+	private static int parseCount(char[] text, int len) {
+		// only plain positive labels can be drawn from an atlas
+		if (len == 0 || len > 9 || text[0] == '0') {
+			return -1;
+		}
+		int value = 0;
+		for (int i = 0; i < len; i++) {
+			char c = text[i];
+			if (c < '0' || c > '9') {
+				return -1;
+			}
+			value = value * 10 + (c - '0');
+		}
+		return value;
+	}
+	
+	private void ensureCapacity(int len) {
+		if (len > text.length) {
+			text = new char[len];
+		}
+	}
+
+	private void onTextChanged(int len) {
+		textLength = len;
+		textWidth = (int) Math.ceil(textPaint.measureText(text, 0, len));
+		textCount = parseCount(text, len);
+		invalidateSelf();
+	}
+
+	/**
+     * Make the badge visible.
+     *
+     */
+	public void show() {
+		if (!isShown) {
+			isShown = true;
+			invalidateSelf();
+		}
+	}
+
+	/**
+     * Make the badge non-visible.
+     *
+     */
+	public void hide() {
+		if (isShown) {
+			isShown = false;
+			invalidateSelf();
+		}
+	}
+
+	/**
+     * Is this badge currently visible?
+     *
+     */
+	public boolean isShown() {
+		return isShown;
+	}
+
+	/**
+     * Returns the positioning of this badge within the drawable bounds.
+     *
+     */
+	public int getBadgePosition() {
+		return badgePosition;
+	}
+
+	/**
+     * Set the positioning of this badge within the drawable bounds.
+     *
+     * @param layoutPosition one of BadgeView.POSITION_TOP_LEFT, POSITION_TOP_RIGHT,
+     * POSITION_BOTTOM_LEFT, POSITION_BOTTOM_RIGHT, POSTION_CENTER.
+     */
+	public void setBadgePosition(int layoutPosition) {
+		this.badgePosition = layoutPosition;
+		invalidateSelf();
+	}
+
+	/**
+     * Set the horizontal/vertical margin from the drawable bounds that is applied to this badge.
+     *
+     * @param horizontal margin in pixels.
+     * @param vertical margin in pixels.
+     */
+	public void setBadgeMargin(int horizontal, int vertical) {
+		this.badgeMarginH = horizontal;
+		this.badgeMarginV = vertical;
+		invalidateSelf();
+	}
+
+	/**
+     * Returns the color value of the badge background.
+     *
+     */
+	public int getBadgeBackgroundColor() {
+		return badgeColor;
+	}
+
+	/**
+     * Set the color value of the badge background.
+     *
+     * @param badgeColor the badge background color.
+     */
+	public void setBadgeBackgroundColor(int badgeColor) {
+		if (this.badgeColor != badgeColor) {
+			this.badgeColor = badgeColor;
+			badgeBg = BadgeBackgroundCache.get(badgeColor, cornerRadius, densityDpi);
+			if (alpha < 255 || colorFilter != null) {
+				// the cached background keeps its alpha and filter in state shared with other badges
+				badgeBg = badgeBg.mutate();
+				badgeBg.setAlpha(alpha);
+				badgeBg.setColorFilter(colorFilter);
+			}
+			invalidateSelf();
+		}
+	}
+
+	/**
+     * Set the color value of the badge label.
+     *
+     * @param color the label color.
+     */
+	public void setTextColor(int color) {
+		textColor = color;
+		applyTextColor();
+		invalidateSelf();
+	}
+
+	/**
+     * Set the size of the badge label.
+     *
+     * @param size the label size in pixels.
+     */
+	public void setTextSize(float size) {
+		textPaint.setTextSize(size);
+		textPaint.getFontMetricsInt(fontMetrics);
+		onTextChanged(textLength);
+	}
+
+	/**
+     * Is this badge drawn as a dot?
+     *
+     */
+	public boolean isDotMode() {
+		return dotMode;
+	}
+
+	/**
+     * Draw this badge as a filled circle in the badge background color, without a label.
+     * The intrinsic size of a dot does not depend on the label.
+     *
+     * @param dotMode true to draw a dot, false to draw the label.
+     */
+	public void setDotMode(boolean dotMode) {
+		this.dotMode = dotMode;
+		invalidateSelf();
+	}
+
+	/**
+     * Returns the radius of this badge in dot mode.
+     *
+     */
+	public int getDotRadius() {
+		return dotRadius;
+	}
+
+	/**
+     * Set the radius of this badge in dot mode.
+     *
+     * @param radius the radius in pixels.
+     */
+	public void setDotRadius(int radius) {
+		this.dotRadius = radius;
+		invalidateSelf();
+	}
+
+	/**
+     * Returns the atlas numeric labels are drawn from, or null if the badge always renders its label.
+     *
+     */
+	public BadgeAtlas getBadgeAtlas() {
+		return atlas;
+	}
+
+	/**
+     * Draw numeric labels covered by the given atlas from its pre-rendered images. The
+     * atlas is only used while the badge colors and text size match the atlas style,
+     * otherwise the label is rendered as usual.
+     *
+     * @param atlas the atlas, or null to always render the label.
+     */
+	public void setBadgeAtlas(BadgeAtlas atlas) {
+		this.atlas = atlas;
+		invalidateSelf();
+	}
+
+	@Override
+	public int getIntrinsicWidth() {
+		if (dotMode) {
+			return 2 * dotRadius;
+		}
+		return textWidth + 2 * paddingH;
+	}
+
+	@Override
+	public int getIntrinsicHeight() {
+		if (dotMode) {
+			return 2 * dotRadius;
+		}
+		return fontMetrics.bottom - fontMetrics.top;
+	}
+
+	@Override
+	public void draw(Canvas canvas) {
+
+		if (!isShown) {
+			return;
+		}
+
+		int gravity = BadgeView.getGravity(badgePosition);
+		container.set(getBounds());
+		if (gravity != Gravity.CENTER) {
+			container.inset(badgeMarginH, badgeMarginV);
+		}
+		Gravity.apply(gravity, getIntrinsicWidth(), getIntrinsicHeight(), container, badgeRect);
+
+		if (dotMode) {
+			dotPaint.setColor(badgeColor);
+			if (alpha < 255) {
+				dotPaint.setAlpha(Color.alpha(badgeColor) * alpha / 255);
+			}
+			canvas.drawCircle(badgeRect.exactCenterX(), badgeRect.exactCenterY(), dotRadius, dotPaint);
+			return;
+		}
+
+		if (atlas != null && canDrawFromAtlas()) {
+			atlas.draw(canvas, textCount, badgeRect.left, badgeRect.top, atlasPaint);
+			return;
+		}
+
+		badgeBg.setBounds(badgeRect);
+		badgeBg.draw(canvas);
+
+		if (textLength > 0) {
+			int baseline = badgeRect.top - fontMetrics.top;
+			canvas.drawText(text, 0, textLength, badgeRect.centerX(), baseline, textPaint);
+		}
+
+	}
+
+	private boolean canDrawFromAtlas() {
+		return atlas.contains(textCount)
+				&& atlas.matches(badgeColor, textColor, textPaint.getTextSize(), textPaint.getTypeface())
+				&& badgeRect.width() == atlas.getCellWidth(textCount)
+				&& badgeRect.height() == atlas.getCellHeight();
+	}
+
+	@Override
+	public void setAlpha(int alpha) {
+		this.alpha = alpha;
+		atlasPaint.setAlpha(alpha);
+		applyTextColor();
+		// the cached background keeps its alpha in state shared with other badges
+		badgeBg = badgeBg.mutate();
+		badgeBg.setAlpha(alpha);
+		invalidateSelf();
+	}
+
+	@Override
+	public void setColorFilter(ColorFilter cf) {
+		colorFilter = cf;
+		textPaint.setColorFilter(cf);
+		atlasPaint.setColorFilter(cf);
+		dotPaint.setColorFilter(cf);
+		// the cached background shares its paint with other badges
+		badgeBg = badgeBg.mutate();
+		badgeBg.setColorFilter(cf);
+		invalidateSelf();
+	}
+
+	@Override
+	public int getOpacity() {
+		return PixelFormat.TRANSLUCENT;
+	}
+
+	private void applyTextColor() {
+		textPaint.setColor(textColor);
+		if (alpha < 255) {
+			textPaint.setAlpha(Color.alpha(textColor) * alpha / 255);
+		}
+	}
+
+}
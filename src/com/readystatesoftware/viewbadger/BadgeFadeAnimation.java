@@ -0,0 +1,59 @@
+package com.readystatesoftware.viewbadger;
+
+import android.view.animation.AccelerateInterpolator;
+import android.view.animation.Animation;
+import android.view.animation.DecelerateInterpolator;
+import android.view.animation.Interpolator;
+import android.view.animation.Transformation;
+
+/**
+ * The default badge fade animation. Each badge owns one instance, which is reused for
+ * both fading in and out and can be restarted from the alpha it had reached when it was
+ * interrupted.
+ */
+final class BadgeFadeAnimation extends Animation {
+
+	static final int DEFAULT_DURATION = 200;
+	static final Interpolator FADE_IN_INTERPOLATOR = new DecelerateInterpolator();
+	static final Interpolator FADE_OUT_INTERPOLATOR = new AccelerateInterpolator();
+
+	private float fromAlpha;
+	private float toAlpha;
+	private float currentAlpha;
+
+	/**
+	 * Prepare the animation to fade towards the given alpha. If it is currently running it
+	 * continues from the alpha it has reached, over a proportionally shorter duration.
+	 *
+	 * @return false if the animation is already running towards toAlpha.
+	 */
+	boolean fadeTo(float toAlpha, boolean running) {
+		if (running && this.toAlpha == toAlpha) {
+			return false;
+		}
+		fromAlpha = running ? currentAlpha : 1.0f - toAlpha;
+		this.toAlpha = toAlpha;
+		currentAlpha = fromAlpha;
+		setInterpolator(toAlpha > fromAlpha ? FADE_IN_INTERPOLATOR : FADE_OUT_INTERPOLATOR);
+		setDuration((long) (DEFAULT_DURATION * Math.abs(toAlpha - fromAlpha)));
+		reset();
+		return true;
+	}
+
+	@Override
+	protected void applyTransformation(float interpolatedTime, Transformation t) {
+		currentAlpha = fromAlpha + ((toAlpha - fromAlpha) * interpolatedTime);
+		t.setAlpha(currentAlpha);
+	}
+
+	@Override
+	public boolean willChangeTransformationMatrix() {
+		return false;
+	}
+
+	@Override
+	public boolean willChangeBounds() {
+		return false;
+	}
+
+}
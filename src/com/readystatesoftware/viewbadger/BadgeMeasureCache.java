@@ -0,0 +1,198 @@
+package com.readystatesoftware.viewbadger;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import android.graphics.Typeface;
+import android.text.TextPaint;
+import android.text.TextUtils;
+
+/**
+ * A process-wide cache of badge label widths keyed by label text, text size and typeface.
+ *
+ * Badges size themselves from the cached width of their label, so a label shown by
+ * many badges (such as "1" or "99+") is only measured once. Lookups use a reused probe
+ * key and do not allocate; only a miss copies the label into a new entry. The cache is
+ * cleared when the font scale changes and evicts the least recently used entries once
+ * it reaches its maximum size. Lookups must be made on the main thread.
+ */
+public final class BadgeMeasureCache {
+
+	private static final int DEFAULT_MAX_SIZE = 256;
+
+	private static int maxSize = DEFAULT_MAX_SIZE;
+	private static int hitCount;
+	private static int missCount;
+	private static float fontScale = -1;
+
+	private static final Key probe = new Key();
+	private static char[] probeChars = new char[16];
+
+	private static final LinkedHashMap<Key, Float> cache =
+		new LinkedHashMap<Key, Float>(32, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Key, Float> eldest) {
+				return size() > maxSize;
+			}
+		};
+
+	/**
+	 * A cache key. The probe key refers to the caller's label, stored keys own a copy.
+	 */
+	private static final class Key {
+
+		char[] text;
+		int length;
+		float textSize;
+		Typeface typeface;
+		int hash;
+
+		Key set(char[] text, int length, float textSize, Typeface typeface) {
+			this.text = text;
+			this.length = length;
+			this.textSize = textSize;
+			this.typeface = typeface;
+			int h = Float.floatToIntBits(textSize) * 31 + (typeface == null ? 0 : typeface.hashCode());
+			for (int i = 0; i < length; i++) {
+				h = h * 31 + text[i];
+			}
+			this.hash = h;
+			return this;
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (!(o instanceof Key)) {
+				return false;
+			}
+			Key other = (Key) o;
+			if (hash != other.hash || textSize != other.textSize || typeface != other.typeface) {
+				return false;
+			}
+			if (length != other.length) {
+				return false;
+			}
+			for (int i = 0; i < length; i++) {
+				if (text[i] != other.text[i]) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+	}
+
+	private BadgeMeasureCache() {
+	}
+
+	/**
+     * Returns the width of a label drawn with the given paint, measuring and caching it
+     * on first use.
+     *
+     * @param text the label.
+     * @param paint the paint the label is drawn with.
+     * @param fontScale the current font scale of the configuration.
+     */
+	public static float measureText(CharSequence text, TextPaint paint, float fontScale) {
+		int len = text.length();
+		if (probeChars.length < len) {
+			probeChars = new char[len];
+		}
+		TextUtils.getChars(text, 0, len, probeChars, 0);
+		return measureText(probeChars, len, paint, fontScale);
+	}
+
+	/**
+     * Returns the width of a label held in a char buffer, measuring and caching it on
+     * first use.
+     *
+     * @param text the buffer holding the label.
+     * @param length the length of the label.
+     * @param paint the paint the label is drawn with.
+     * @param fontScale the current font scale of the configuration.
+     */
+	static float measureText(char[] text, int length, TextPaint paint, float fontScale) {
+		if (fontScale != BadgeMeasureCache.fontScale) {
+			// scaled sizes no longer match, and stale entries would only take up space
+			cache.clear();
+			BadgeMeasureCache.fontScale = fontScale;
+		}
+		Float width = cache.get(probe.set(text, length, paint.getTextSize(), paint.getTypeface()));
+		probe.text = null;
+		if (width != null) {
+			hitCount++;
+			return width.floatValue();
+		}
+		missCount++;
+		float w = paint.measureText(text, 0, length);
+		char[] copy = new char[length];
+		System.arraycopy(text, 0, copy, 0, length);
+		cache.put(new Key().set(copy, length, paint.getTextSize(), paint.getTypeface()), Float.valueOf(w));
+		return w;
+	}
+
+	/**
+     * Set the maximum number of cached widths, evicting the least recently used entries
+     * if the cache is currently larger.
+     *
+     * @param size the maximum number of entries, at least 1.
+     */
+	public static void setMaxSize(int size) {
+		if (size < 1) {
+			throw new IllegalArgumentException("size must be at least 1");
+		}
+		maxSize = size;
+		while (cache.size() > maxSize) {
+			cache.remove(cache.keySet().iterator().next());
+		}
+	}
+
+	/**
+     * Returns the maximum number of cached widths.
+     *
+     */
+	public static int getMaxSize() {
+		return maxSize;
+	}
+
+	/**
+     * Returns the number of cached widths.
+     *
+     */
+	public static int size() {
+		return cache.size();
+	}
+
+	/**
+     * Returns the number of lookups that were served from the cache.
+     *
+     */
+	public static int getHitCount() {
+		return hitCount;
+	}
+
+	/**
+     * Returns the number of lookups that had to measure the label.
+     *
+     */
+	public static int getMissCount() {
+		return missCount;
+	}
+
+	/**
+     * Remove all cached widths and reset the counters.
+     *
+     */
+	public static void clear() {
+		cache.clear();
+		hitCount = 0;
+		missCount = 0;
+	}
+
+}
@@ -0,0 +1,222 @@
+package com.readystatesoftware.viewbadger;
+
+import java.lang.reflect.Method;
+
+import android.os.Build;
+
+/**
+ * Opt-in instrumentation of {@link BadgeView}s.
+ *
+ * While enabled, every badge counts its attaches, the view tree depth its attach added,
+ * label updates, layout requests, draws and animations started, and the same events are
+ * summed over all badges. Attaching, showing, hiding and incrementing a badge are also
+ * wrapped in android.os.Trace sections (on API level 18 and later) so they appear in
+ * system traces. While disabled, each instrumented call only reads one static flag.
+ * Must be used on the main thread.
+ *
+ * <pre>
+ * BadgeMetrics.setEnabled(true);
+ * ...
+ * Log.d(TAG, BadgeMetrics.snapshot().toString());
+ * </pre>
+ */
+public final class BadgeMetrics {
+
+	// toggled from any thread, read by every instrumented badge call
+	static volatile boolean enabled;
+
+	private static final Counters totals = new Counters();
+
+	private static boolean traceResolved;
+	private static Method traceBegin;
+	private static Method traceEnd;
+
+	/**
+	 * Mutable event counts of one badge, or of all badges.
+	 */
+	static final class Counters {
+		int attaches;
+		int depthAdded;
+		int textUpdates;
+		int layoutRequests;
+		int draws;
+		int animationsStarted;
+	}
+
+	/**
+	 * An immutable copy of event counts taken by {@link BadgeMetrics#snapshot()}.
+	 */
+	public static final class Snapshot {
+
+		/** The number of times badges were attached to a target. */
+		public final int attaches;
+		/** The number of view tree levels added by attaching badges. */
+		public final int depthAdded;
+		/** The number of label changes. */
+		public final int textUpdates;
+		/** The number of layout requests made by badges. */
+		public final int layoutRequests;
+		/** The number of times badges were drawn. */
+		public final int draws;
+		/** The number of animations started on badges. */
+		public final int animationsStarted;
+
+		private Snapshot(Counters c) {
+			attaches = c.attaches;
+			depthAdded = c.depthAdded;
+			textUpdates = c.textUpdates;
+			layoutRequests = c.layoutRequests;
+			draws = c.draws;
+			animationsStarted = c.animationsStarted;
+		}
+
+		@Override
+		public String toString() {
+			return "attaches=" + attaches + " depthAdded=" + depthAdded + " textUpdates=" + textUpdates
+					+ " layoutRequests=" + layoutRequests + " draws=" + draws
+					+ " animationsStarted=" + animationsStarted;
+		}
+
+	}
+
+	private BadgeMetrics() {
+	}
+
+	/**
+     * Start or stop counting badge events and emitting trace sections. Counts are kept
+     * when instrumentation is disabled.
+     *
+     * @param enabled true to instrument badges.
+     */
+	public static void setEnabled(boolean enabled) {
+		BadgeMetrics.enabled = enabled;
+	}
+
+	/**
+     * Is badge instrumentation enabled?
+     *
+     */
+	public static boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+     * Returns the event counts summed over all badges.
+     *
+     */
+	public static Snapshot snapshot() {
+		return new Snapshot(totals);
+	}
+
+	/**
+     * Returns the event counts of one badge, all 0 if it has not been instrumented.
+     *
+     * @param badge the badge.
+     */
+	public static Snapshot snapshot(BadgeView badge) {
+		return new Snapshot(badge.metrics != null ? badge.metrics : new Counters());
+	}
+
+	/**
+     * Reset the total event counts. Badges keep their own counts.
+     *
+     */
+	public static void reset() {
+		reset(totals);
+	}
+
+	/**
+     * Reset the event counts of one badge.
+     *
+     * @param badge the badge.
+     */
+	public static void reset(BadgeView badge) {
+		if (badge.metrics != null) {
+			reset(badge.metrics);
+		}
+	}
+
+	private static void reset(Counters c) {
+		c.attaches = 0;
+		c.depthAdded = 0;
+		c.textUpdates = 0;
+		c.layoutRequests = 0;
+		c.draws = 0;
+		c.animationsStarted = 0;
+	}
+
+	private static Counters counters(BadgeView badge) {
+		Counters c = badge.metrics;
+		if (c == null) {
+			c = new Counters();
+			badge.metrics = c;
+		}
+		return c;
+	}
+
+	static void onAttach(BadgeView badge, int depthAdded) {
+		Counters c = counters(badge);
+		c.attaches++;
+		c.depthAdded += depthAdded;
+		totals.attaches++;
+		totals.depthAdded += depthAdded;
+	}
+
+	static void onTextUpdate(BadgeView badge) {
+		counters(badge).textUpdates++;
+		totals.textUpdates++;
+	}
+
+	static void onLayoutRequest(BadgeView badge) {
+		counters(badge).layoutRequests++;
+		totals.layoutRequests++;
+	}
+
+	static void onDraw(BadgeView badge) {
+		counters(badge).draws++;
+		totals.draws++;
+	}
+
+	static void onAnimationStart(BadgeView badge) {
+		counters(badge).animationsStarted++;
+		totals.animationsStarted++;
+	}
+
+	static void beginSection(String name) {
+		if (resolveTrace()) {
+			try {
+				traceBegin.invoke(null, name);
+			} catch (Exception e) {
+				traceBegin = null;
+			}
+		}
+	}
+
+	static void endSection() {
+		if (resolveTrace()) {
+			try {
+				traceEnd.invoke(null);
+			} catch (Exception e) {
+				traceBegin = null;
+			}
+		}
+	}
+
+	private static boolean resolveTrace() {
+		// android.os.Trace is only available from API level 18
+		if (!traceResolved) {
+			traceResolved = true;
+			if (Build.VERSION.SDK_INT >= 18) {
+				try {
+					Class<?> trace = Class.forName("android.os.Trace");
+					traceBegin = trace.getMethod("beginSection", String.class);
+					traceEnd = trace.getMethod("endSection");
+				} catch (Exception e) {
+					traceBegin = null;
+				}
+			}
+		}
+		return traceBegin != null && traceEnd != null;
+	}
+
+}
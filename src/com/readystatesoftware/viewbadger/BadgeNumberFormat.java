@@ -0,0 +1,143 @@
+package com.readystatesoftware.viewbadger;
+
+import java.text.DecimalFormatSymbols;
+import java.util.Locale;
+
+/**
+ * Formats badge counts into a caller-supplied char buffer without allocating.
+ *
+ * The digits, decimal separator and minus sign of a locale are looked up once when the
+ * format is created. A compact format abbreviates counts of 1000 and more to at most
+ * three digits and a suffix, for example "1.2k", "15k", "340k", "1.5M" or "2B". Counts
+ * are truncated rather than rounded, so a badge never overstates its count. Counts above
+ * a cap are displayed as the cap followed by "+", for example "99+".
+ *
+ * The compact suffixes "k", "M" and "B" are not localized, only the digits and separators
+ * follow the locale. Apps that need localized abbreviations should format those counts
+ * themselves and set the label with {@link BadgeView#setText(CharSequence)}.
+ *
+ * <pre>
+ * badge.setNumberFormat(new BadgeNumberFormat(true));
+ * badge.setCount(15320); // "15k"
+ * </pre>
+ */
+public final class BadgeNumberFormat {
+
+	/**
+	 * The longest label produced by any format, in characters.
+	 */
+	public static final int MAX_LENGTH = 12;
+
+	private static final long[] UNITS = {1000000000L, 1000000L, 1000L};
+	private static final char[] SUFFIXES = {'B', 'M', 'k'};
+
+	private final Locale locale;
+	private final boolean compact;
+	private final char zeroDigit;
+	private final char decimalSeparator;
+	private final char minusSign;
+
+	/**
+     * Constructor -
+     *
+     * create a format for the default locale.
+     *
+     * @param compact true to abbreviate counts of 1000 and more.
+     */
+	public BadgeNumberFormat(boolean compact) {
+		this(Locale.getDefault(), compact);
+	}
+
+	/**
+     * Constructor -
+     *
+     * create a format using the digits and separators of the given locale.
+     *
+     * @param locale the locale.
+     * @param compact true to abbreviate counts of 1000 and more.
+     */
+	public BadgeNumberFormat(Locale locale, boolean compact) {
+		DecimalFormatSymbols symbols = new DecimalFormatSymbols(locale);
+		this.locale = locale;
+		this.compact = compact;
+		this.zeroDigit = symbols.getZeroDigit();
+		this.decimalSeparator = symbols.getDecimalSeparator();
+		this.minusSign = symbols.getMinusSign();
+	}
+
+	/**
+     * Write the label for a count into a buffer.
+     *
+     * @param count the count.
+     * @param maxCount the largest count displayed before the label is capped, or 0 to
+     * display every count.
+     * @param buf the buffer, at least MAX_LENGTH characters long.
+     * @return the number of characters written.
+     */
+	public int format(int count, int maxCount, char[] buf) {
+		if (maxCount > 0 && count > maxCount) {
+			int len = format(maxCount, 0, buf);
+			buf[len] = '+';
+			return len + 1;
+		}
+
+		long v = count;
+		int len = 0;
+		if (v < 0) {
+			buf[len++] = minusSign;
+			v = -v;
+		}
+		if (!compact || v < 1000) {
+			return writeDigits(v, buf, len);
+		}
+
+		int i = 0;
+		while (v < UNITS[i]) {
+			i++;
+		}
+		long unit = UNITS[i];
+		long whole = v / unit;
+		len = writeDigits(whole, buf, len);
+		if (whole < 10) {
+			int tenths = (int) (v % unit * 10 / unit);
+			if (tenths > 0) {
+				buf[len++] = decimalSeparator;
+				buf[len++] = (char) (zeroDigit + tenths);
+			}
+		}
+		buf[len++] = SUFFIXES[i];
+		return len;
+	}
+
+	private int writeDigits(long v, char[] buf, int start) {
+		int len = start;
+		do {
+			buf[len++] = (char) (zeroDigit + (v % 10));
+			v /= 10;
+		} while (v > 0);
+		// digits were written least significant first
+		for (int i = start, j = len - 1; i < j; i++, j--) {
+			char c = buf[i];
+			buf[i] = buf[j];
+			buf[j] = c;
+		}
+		return len;
+	}
+
+	/**
+     * Returns the locale whose digits and separators this format uses.
+     *
+     */
+	public Locale getLocale() {
+		return locale;
+	}
+
+	/**
+     * Does this format abbreviate counts of 1000 and more?
+     *
+     */
+	public boolean isCompact() {
+		return compact;
+	}
+
+}
@@ -0,0 +1,303 @@
+package com.readystatesoftware.viewbadger;
+
+import java.util.ArrayList;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Rect;
+import android.util.AttributeSet;
+import android.view.Gravity;
+import android.view.View;
+import android.view.ViewGroup;
+import android.view.ViewParent;
+import android.view.ViewTreeObserver;
+import android.view.animation.Animation;
+import android.view.animation.Transformation;
+import android.widget.FrameLayout;
+
+/**
+ * A {@link android.widget.FrameLayout} that draws overlay {@link BadgeView}s on top of
+ * its descendants during its own draw pass.
+ *
+ * Badges attached in overlay mode are never added to the view hierarchy, so the
+ * target View keeps its original parent, index and layout params. Use this layout as
+ * (or near) the root of a layout containing many badged views. Overlay badges are
+ * drawn only and do not receive touch events. The overlay also draws any
+ * {@link TabBadges} created for a TabWidget inside it, and attaches BadgeViews declared
+ * inside it with a badgeTarget attribute when the layout is inflated.
+ *
+ * Badges are only drawn while their target is shown, and are clipped to the part of the
+ * target that is not scrolled out of its ancestors. The overlay redraws its badges
+ * whenever a view in the window scrolls or is laid out, so that they follow their
+ * targets even when the overlay itself is not invalidated.
+ */
+public class BadgeOverlayLayout extends FrameLayout {
+
+	private final ArrayList<BadgeView> badges = new ArrayList<BadgeView>();
+	private final ArrayList<TabBadges> tabBadges = new ArrayList<TabBadges>();
+
+	private final Rect targetRect = new Rect();
+	private final Rect badgeRect = new Rect();
+	private final Rect visibleRect = new Rect();
+	private final Rect clipRect = new Rect();
+	private final Transformation transformation = new Transformation();
+
+	private boolean drawingBadges;
+
+	// hardware accelerated windows redraw a moved descendant without running dispatchDraw
+	// here, so the badges are redrawn explicitly when targets may have moved
+	private final ViewTreeObserver.OnScrollChangedListener scrollListener =
+		new ViewTreeObserver.OnScrollChangedListener() {
+			@Override
+			public void onScrollChanged() {
+				onTargetsMoved();
+			}
+		};
+	private final ViewTreeObserver.OnGlobalLayoutListener layoutListener =
+		new ViewTreeObserver.OnGlobalLayoutListener() {
+			@Override
+			public void onGlobalLayout() {
+				onTargetsMoved();
+			}
+		};
+
+	public BadgeOverlayLayout(Context context) {
+		super(context);
+	}
+
+	public BadgeOverlayLayout(Context context, AttributeSet attrs) {
+		super(context, attrs);
+	}
+
+	public BadgeOverlayLayout(Context context, AttributeSet attrs, int defStyle) {
+		super(context, attrs, defStyle);
+	}
+
+	@Override
+	protected void onFinishInflate() {
+		super.onFinishInflate();
+		attachDeclaredBadges(this);
+	}
+
+	@Override
+	protected void onAttachedToWindow() {
+		super.onAttachedToWindow();
+		ViewTreeObserver observer = getViewTreeObserver();
+		observer.addOnScrollChangedListener(scrollListener);
+		observer.addOnGlobalLayoutListener(layoutListener);
+	}
+
+	@Override
+	protected void onDetachedFromWindow() {
+		ViewTreeObserver observer = getViewTreeObserver();
+		observer.removeOnScrollChangedListener(scrollListener);
+		observer.removeGlobalOnLayoutListener(layoutListener);
+		super.onDetachedFromWindow();
+	}
+
+	private void onTargetsMoved() {
+		if (!badges.isEmpty() || !tabBadges.isEmpty()) {
+			invalidateBadges();
+		}
+	}
+
+	/**
+	 * Attach every BadgeView declared in this layout with a badgeTarget, before the first
+	 * layout pass. The badges are removed from their parents without requesting a layout
+	 * and wrap or overlay their targets as declared by badgeMode.
+	 */
+	private void attachDeclaredBadges(ViewGroup group) {
+		for (int i = group.getChildCount() - 1; i >= 0; i--) {
+			View child = group.getChildAt(i);
+			if (child instanceof BadgeView) {
+				BadgeView badge = (BadgeView) child;
+				int targetId = badge.getDeclaredTargetId();
+				if (targetId != 0) {
+					View target = findViewById(targetId);
+					if (target == null) {
+						throw new IllegalStateException("badgeTarget of a declared BadgeView not found in this layout");
+					}
+					// children are visited last to first, so removing the badge and wrapping
+					// a target in place leave the unvisited indices unchanged
+					group.removeViewInLayout(badge);
+					badge.attachDeclared(target, this);
+				}
+			} else if (child instanceof ViewGroup) {
+				attachDeclaredBadges((ViewGroup) child);
+			}
+		}
+	}
+
+	/**
+     * Returns the nearest BadgeOverlayLayout ancestor of the given View, or null if there is none.
+     *
+     * @param view the View to start searching from.
+     */
+	public static BadgeOverlayLayout findOverlay(View view) {
+		ViewParent parent = view.getParent();
+		while (parent != null) {
+			if (parent instanceof BadgeOverlayLayout) {
+				return (BadgeOverlayLayout) parent;
+			}
+			parent = parent.getParent();
+		}
+		return null;
+	}
+
+	void addBadge(BadgeView badge) {
+		if (!badges.contains(badge)) {
+			badges.add(badge);
+			invalidate();
+		}
+	}
+
+	void removeBadge(BadgeView badge) {
+		if (badges.remove(badge)) {
+			invalidate();
+		}
+	}
+
+	void addTabBadges(TabBadges badges) {
+		if (!tabBadges.contains(badges)) {
+			tabBadges.add(badges);
+			invalidate();
+		}
+	}
+
+	void removeTabBadges(TabBadges badges) {
+		if (tabBadges.remove(badges)) {
+			invalidate();
+		}
+	}
+
+	void invalidateBadge(BadgeView badge) {
+		invalidateBadges();
+	}
+
+	void invalidateBadges() {
+		// changes made while laying out or drawing badges are picked up by the current pass
+		if (!drawingBadges) {
+			invalidate();
+		}
+	}
+
+	@Override
+	protected void dispatchDraw(Canvas canvas) {
+		super.dispatchDraw(canvas);
+
+		drawingBadges = true;
+		boolean more = false;
+		for (int i = 0, n = badges.size(); i < n; i++) {
+			more |= drawBadge(canvas, badges.get(i));
+		}
+		for (int i = 0, n = tabBadges.size(); i < n; i++) {
+			tabBadges.get(i).draw(canvas, this);
+		}
+		drawingBadges = false;
+
+		if (more) {
+			invalidate();
+		}
+	}
+
+	private boolean drawBadge(Canvas canvas, BadgeView badge) {
+
+		Animation anim = badge.getAnimation();
+		if (badge.getVisibility() != View.VISIBLE && anim == null) {
+			return false;
+		}
+
+		View target = badge.getTarget();
+		if (target == null || !target.isShown() || !isDescendant(target)) {
+			return false;
+		}
+
+		target.getDrawingRect(targetRect);
+		offsetDescendantRectToMyCoords(target, targetRect);
+		if (!getVisibleRect(target, targetRect, visibleRect)) {
+			return false;
+		}
+
+		FrameLayout.LayoutParams lp = (FrameLayout.LayoutParams) badge.getLayoutParams();
+		if (badge.isLayoutRequested() || badge.getWidth() == 0) {
+			badge.measure(getBadgeMeasureSpec(lp.width, targetRect.width()),
+					getBadgeMeasureSpec(lp.height, targetRect.height()));
+		}
+
+		int gravity = lp.gravity == -1 ? Gravity.TOP | Gravity.LEFT : lp.gravity;
+		targetRect.left += lp.leftMargin;
+		targetRect.top += lp.topMargin;
+		targetRect.right -= lp.rightMargin;
+		targetRect.bottom -= lp.bottomMargin;
+		Gravity.apply(gravity, badge.getMeasuredWidth(), badge.getMeasuredHeight(), targetRect, badgeRect);
+		badge.layout(badgeRect.left, badgeRect.top, badgeRect.right, badgeRect.bottom);
+
+		boolean more = false;
+		int saveCount = canvas.save();
+		canvas.clipRect(visibleRect);
+		canvas.translate(badgeRect.left, badgeRect.top);
+
+		if (anim != null) {
+			if (!anim.isInitialized()) {
+				anim.initialize(badgeRect.width(), badgeRect.height(), getWidth(), getHeight());
+			}
+			more = anim.getTransformation(getDrawingTime(), transformation);
+			canvas.concat(transformation.getMatrix());
+			float alpha = transformation.getAlpha();
+			if (alpha < 1.0f) {
+				canvas.saveLayerAlpha(0, 0, badgeRect.width(), badgeRect.height(),
+						(int) (255 * alpha), Canvas.HAS_ALPHA_LAYER_SAVE_FLAG);
+			}
+		}
+
+		if (badge.getVisibility() == View.VISIBLE || more) {
+			badge.draw(canvas);
+		}
+		canvas.restoreToCount(saveCount);
+
+		if (anim != null && !more) {
+			badge.clearAnimation();
+			badge.onAnimationEnd();
+		}
+
+		return more;
+
+	}
+
+	/**
+	 * Set visible to the part of a descendant's rect, in this layout's coordinates, that is
+	 * not clipped by the descendant's ancestors. Returns false if none of it is visible.
+	 */
+	boolean getVisibleRect(View descendant, Rect rect, Rect visible) {
+		visible.set(rect);
+		ViewParent parent = descendant.getParent();
+		while (parent != this) {
+			View ancestor = (View) parent;
+			ancestor.getDrawingRect(clipRect);
+			offsetDescendantRectToMyCoords(ancestor, clipRect);
+			if (!visible.intersect(clipRect)) {
+				return false;
+			}
+			parent = parent.getParent();
+		}
+		return true;
+	}
+
+	private boolean isDescendant(View view) {
+		ViewParent parent = view.getParent();
+		while (parent != null && parent != this) {
+			parent = parent.getParent();
+		}
+		return parent == this;
+	}
+
+	private static int getBadgeMeasureSpec(int size, int available) {
+		if (size >= 0) {
+			return MeasureSpec.makeMeasureSpec(size, MeasureSpec.EXACTLY);
+		} else if (size == LayoutParams.FILL_PARENT) {
+			return MeasureSpec.makeMeasureSpec(available, MeasureSpec.EXACTLY);
+		}
+		return MeasureSpec.makeMeasureSpec(0, MeasureSpec.UNSPECIFIED);
+	}
+
+}
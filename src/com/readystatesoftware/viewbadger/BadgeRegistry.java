@@ -0,0 +1,80 @@
+package com.readystatesoftware.viewbadger;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.WeakHashMap;
+
+import android.view.View;
+
+/**
+ * Maps badged target Views to their badges. Neither the targets nor the badges are
+ * kept alive by the registry.
+ */
+final class BadgeRegistry {
+
+	private static final WeakHashMap<View, WeakReference<BadgeView>> badges =
+		new WeakHashMap<View, WeakReference<BadgeView>>();
+
+	private static final ReferenceQueue<View> collectedTargets = new ReferenceQueue<View>();
+
+	/**
+	 * A weak reference to a badge target that is enqueued once the target is collected.
+	 */
+	static final class TargetReference extends WeakReference<View> {
+
+		private final WeakReference<BadgeView> badge;
+
+		TargetReference(View target, BadgeView badge) {
+			super(target, collectedTargets);
+			this.badge = new WeakReference<BadgeView>(badge);
+		}
+
+	}
+
+	private BadgeRegistry() {
+	}
+
+	static TargetReference register(View target, BadgeView badge) {
+		synchronized (badges) {
+			badges.put(target, new WeakReference<BadgeView>(badge));
+		}
+		return new TargetReference(target, badge);
+	}
+
+	static void unregister(View target, BadgeView badge) {
+		synchronized (badges) {
+			WeakReference<BadgeView> ref = badges.get(target);
+			if (ref != null && ref.get() == badge) {
+				badges.remove(target);
+			}
+		}
+	}
+
+	static BadgeView get(View target) {
+		synchronized (badges) {
+			WeakReference<BadgeView> ref = badges.get(target);
+			if (ref == null) {
+				return null;
+			}
+			BadgeView badge = ref.get();
+			if (badge == null) {
+				badges.remove(target);
+			}
+			return badge;
+		}
+	}
+
+	static int reap() {
+		int released = 0;
+		TargetReference ref;
+		while ((ref = (TargetReference) collectedTargets.poll()) != null) {
+			BadgeView badge = ref.badge.get();
+			if (badge != null && badge.getTarget() == null) {
+				badge.release();
+				released++;
+			}
+		}
+		return released;
+	}
+
+}
@@ -0,0 +1,428 @@
+package com.readystatesoftware.viewbadger;
+
+import android.content.Context;
+import android.content.res.Configuration;
+import android.content.res.TypedArray;
+import android.graphics.Typeface;
+import android.graphics.drawable.Drawable;
+import android.graphics.drawable.Drawable.ConstantState;
+import android.util.AttributeSet;
+import android.util.DisplayMetrics;
+import android.util.SparseArray;
+
+/**
+ * An immutable set of badge appearance values, resolved to pixels for one display
+ * density. A single style can be shared by any number of {@link BadgeView}s and
+ * {@link BadgeDrawable}s, so creating a badge only references precomputed values.
+ *
+ * Use {@link #getDefault(Context)} for the default badge appearance, or a
+ * {@link BadgeStyle.Builder} to create a custom style once and reuse it.
+ */
+public final class BadgeStyle {
+
+	private static BadgeStyle defaultStyle;
+	private static float defaultFontScale;
+
+	private static final SparseArray<BadgeStyle> resourceStyles = new SparseArray<BadgeStyle>();
+	private static BadgeStyle resourceStylesDefault;
+
+	private final int badgePosition;
+	private final int badgeMarginH;
+	private final int badgeMarginV;
+	private final int paddingH;
+	private final int cornerRadius;
+	private final int dotRadius;
+	private final int badgeColor;
+	private final int textColor;
+	private final Typeface typeface;
+	private final float textSize;
+	private final float density;
+	private final int densityDpi;
+	private final ConstantState background;
+
+	private BadgeStyle(Builder builder) {
+		badgePosition = builder.badgePosition;
+		badgeMarginH = builder.badgeMarginH;
+		badgeMarginV = builder.badgeMarginV;
+		paddingH = builder.paddingH;
+		cornerRadius = builder.cornerRadius;
+		dotRadius = builder.dotRadius;
+		badgeColor = builder.badgeColor;
+		textColor = builder.textColor;
+		typeface = builder.typeface;
+		textSize = builder.textSize;
+		density = builder.density;
+		densityDpi = builder.densityDpi;
+		background = BadgeBackgroundCache.get(badgeColor, cornerRadius, densityDpi).getConstantState();
+	}
+
+	/**
+     * Returns the default badge style for the display density and font scale of the
+     * given context. The style is created once and reused until the density or font
+     * scale changes.
+     *
+     * @param context context used to resolve the display metrics.
+     */
+	public static BadgeStyle getDefault(Context context) {
+		DisplayMetrics dm = context.getResources().getDisplayMetrics();
+		Configuration config = context.getResources().getConfiguration();
+		float fontScale = config == null ? 1.0f : config.fontScale;
+		synchronized (BadgeStyle.class) {
+			if (defaultStyle == null || defaultStyle.densityDpi != dm.densityDpi
+					|| defaultStyle.density != dm.density || defaultFontScale != fontScale) {
+				defaultStyle = new Builder(dm).build();
+				defaultFontScale = fontScale;
+			}
+			return defaultStyle;
+		}
+	}
+
+	/**
+     * Returns the badge style defined by a style resource using the BadgeStyle attributes,
+     * such as badgePosition and badgeColor. Each style resource is parsed once and reused
+     * until the display density or font scale changes.
+     *
+     * @param context context used to resolve the style resource.
+     * @param styleRes the style resource id.
+     */
+	public static BadgeStyle fromStyle(Context context, int styleRes) {
+		BadgeStyle base = getDefault(context);
+		BadgeAttributes attrs = BadgeAttributes.style(context);
+		if (attrs == null) {
+			return base;
+		}
+		synchronized (BadgeStyle.class) {
+			if (resourceStylesDefault != base) {
+				// the default style changes with the density and font scale
+				resourceStyles.clear();
+				resourceStylesDefault = base;
+			}
+			BadgeStyle style = resourceStyles.get(styleRes);
+			if (style == null) {
+				TypedArray a = context.obtainStyledAttributes(styleRes, attrs.attrs);
+				try {
+					style = applyAttributes(base.buildUpon(), a, attrs).build();
+				} finally {
+					a.recycle();
+				}
+				resourceStyles.put(styleRes, style);
+			}
+			return style;
+		}
+	}
+
+	/**
+     * Returns the badge style of a layout element: the cached style of its style
+     * resource, or the default style, with any BadgeStyle attributes of the element
+     * itself applied on top.
+     */
+	static BadgeStyle fromAttributes(Context context, AttributeSet attrs) {
+		int styleRes = attrs.getStyleAttribute();
+		BadgeStyle base = styleRes != 0 ? fromStyle(context, styleRes) : getDefault(context);
+		BadgeAttributes styleAttrs = BadgeAttributes.style(context);
+		if (styleAttrs == null || !hasStyleAttributes(attrs, styleAttrs)) {
+			return base;
+		}
+		TypedArray a = context.obtainStyledAttributes(attrs, styleAttrs.attrs, 0, 0);
+		try {
+			return applyAttributes(base.buildUpon(), a, styleAttrs).build();
+		} finally {
+			a.recycle();
+		}
+	}
+
+	private static boolean hasStyleAttributes(AttributeSet attrs, BadgeAttributes badgeAttrs) {
+		int[] styleAttrs = badgeAttrs.attrs;
+		for (int i = 0, n = attrs.getAttributeCount(); i < n; i++) {
+			int name = attrs.getAttributeNameResource(i);
+			for (int j = 0; j < styleAttrs.length; j++) {
+				if (styleAttrs[j] == name) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	private static Builder applyAttributes(Builder b, TypedArray a, BadgeAttributes attrs) {
+		b.setBadgePosition(a.getInt(attrs.index(BadgeAttributes.STYLE_POSITION), b.badgePosition));
+		int margin = a.getDimensionPixelOffset(attrs.index(BadgeAttributes.STYLE_MARGIN), -1);
+		int marginH = margin >= 0 ? margin : b.badgeMarginH;
+		int marginV = margin >= 0 ? margin : b.badgeMarginV;
+		b.setBadgeMargin(a.getDimensionPixelOffset(attrs.index(BadgeAttributes.STYLE_MARGIN_HORIZONTAL), marginH),
+				a.getDimensionPixelOffset(attrs.index(BadgeAttributes.STYLE_MARGIN_VERTICAL), marginV));
+		b.setBadgeBackgroundColor(a.getColor(attrs.index(BadgeAttributes.STYLE_COLOR), b.badgeColor));
+		b.setTextColor(a.getColor(attrs.index(BadgeAttributes.STYLE_TEXT_COLOR), b.textColor));
+		b.setCornerRadius(a.getDimensionPixelSize(attrs.index(BadgeAttributes.STYLE_CORNER_RADIUS), b.cornerRadius));
+		b.setDotRadius(a.getDimensionPixelSize(attrs.index(BadgeAttributes.STYLE_DOT_RADIUS), b.dotRadius));
+		return b;
+	}
+
+	/**
+     * Returns a new badge background drawable sharing this style's cached background state.
+     *
+     */
+	public Drawable newBackground() {
+		if (background != null) {
+			return background.newDrawable();
+		}
+		return BadgeBackgroundCache.get(badgeColor, cornerRadius, densityDpi);
+	}
+
+	/**
+     * Returns the positioning of badges using this style.
+     *
+     */
+	public int getBadgePosition() {
+		return badgePosition;
+	}
+
+	/**
+     * Returns the horizontal margin in pixels.
+     *
+     */
+	public int getHorizontalBadgeMargin() {
+		return badgeMarginH;
+	}
+
+	/**
+     * Returns the vertical margin in pixels.
+     *
+     */
+	public int getVerticalBadgeMargin() {
+		return badgeMarginV;
+	}
+
+	/**
+     * Returns the left and right label padding in pixels.
+     *
+     */
+	public int getHorizontalPadding() {
+		return paddingH;
+	}
+
+	/**
+     * Returns the background corner radius in pixels.
+     *
+     */
+	public int getCornerRadius() {
+		return cornerRadius;
+	}
+
+	/**
+     * Returns the radius in pixels of badges in dot mode.
+     *
+     */
+	public int getDotRadius() {
+		return dotRadius;
+	}
+
+	/**
+     * Returns the color value of the badge background.
+     *
+     */
+	public int getBadgeBackgroundColor() {
+		return badgeColor;
+	}
+
+	/**
+     * Returns the color value of the badge label.
+     *
+     */
+	public int getTextColor() {
+		return textColor;
+	}
+
+	/**
+     * Returns the typeface of the badge label.
+     *
+     */
+	public Typeface getTypeface() {
+		return typeface;
+	}
+
+	/**
+     * Returns the size of the badge label in pixels, or 0 if badge views keep the text
+     * size of their theme.
+     *
+     */
+	public float getTextSize() {
+		return textSize;
+	}
+
+	/**
+     * Returns the display density the pixel values of this style were resolved for.
+     *
+     */
+	public int getDensityDpi() {
+		return densityDpi;
+	}
+
+	/**
+     * Returns a builder initialized with the values of this style.
+     *
+     */
+	public Builder buildUpon() {
+		return new Builder(this);
+	}
+
+	/**
+	 * Creates {@link BadgeStyle} instances. Every value is initialized to the default
+	 * badge appearance; pixel values are resolved for the density of the builder's context.
+	 */
+	public static class Builder {
+
+		private int badgePosition;
+		private int badgeMarginH;
+		private int badgeMarginV;
+		private int paddingH;
+		private int cornerRadius;
+		private int dotRadius;
+		private int badgeColor;
+		private int textColor;
+		private Typeface typeface;
+		private float textSize;
+		private final float density;
+		private final int densityDpi;
+
+		public Builder(Context context) {
+			this(context.getResources().getDisplayMetrics());
+		}
+
+		private Builder(DisplayMetrics dm) {
+			density = dm.density;
+			densityDpi = dm.densityDpi;
+			badgePosition = BadgeView.POSITION_TOP_RIGHT;
+			badgeMarginH = dipToPixels(BadgeView.DEFAULT_MARGIN_DIP);
+			badgeMarginV = badgeMarginH;
+			paddingH = dipToPixels(BadgeView.DEFAULT_LR_PADDING_DIP);
+			cornerRadius = dipToPixels(BadgeView.DEFAULT_CORNER_RADIUS_DIP);
+			dotRadius = dipToPixels(BadgeView.DEFAULT_DOT_RADIUS_DIP);
+			badgeColor = BadgeView.DEFAULT_BADGE_COLOR;
+			textColor = BadgeView.DEFAULT_TEXT_COLOR;
+			typeface = Typeface.DEFAULT_BOLD;
+		}
+
+		private Builder(BadgeStyle style) {
+			density = style.density;
+			densityDpi = style.densityDpi;
+			badgePosition = style.badgePosition;
+			badgeMarginH = style.badgeMarginH;
+			badgeMarginV = style.badgeMarginV;
+			paddingH = style.paddingH;
+			cornerRadius = style.cornerRadius;
+			dotRadius = style.dotRadius;
+			badgeColor = style.badgeColor;
+			textColor = style.textColor;
+			typeface = style.typeface;
+			textSize = style.textSize;
+		}
+
+		/**
+	     * Set the positioning of the badge.
+	     *
+	     * @param layoutPosition one of BadgeView.POSITION_TOP_LEFT, POSITION_TOP_RIGHT,
+	     * POSITION_BOTTOM_LEFT, POSITION_BOTTOM_RIGHT, POSTION_CENTER.
+	     */
+		public Builder setBadgePosition(int layoutPosition) {
+			this.badgePosition = layoutPosition;
+			return this;
+		}
+
+		/**
+	     * Set the horizontal/vertical margin from the target that is applied to the badge.
+	     *
+	     * @param horizontal margin in pixels.
+	     * @param vertical margin in pixels.
+	     */
+		public Builder setBadgeMargin(int horizontal, int vertical) {
+			this.badgeMarginH = horizontal;
+			this.badgeMarginV = vertical;
+			return this;
+		}
+
+		/**
+	     * Set the left and right label padding.
+	     *
+	     * @param padding the padding in pixels.
+	     */
+		public Builder setHorizontalPadding(int padding) {
+			this.paddingH = padding;
+			return this;
+		}
+
+		/**
+	     * Set the background corner radius.
+	     *
+	     * @param radius the radius in pixels.
+	     */
+		public Builder setCornerRadius(int radius) {
+			this.cornerRadius = radius;
+			return this;
+		}
+
+		/**
+	     * Set the radius of badges in dot mode.
+	     *
+	     * @param radius the radius in pixels.
+	     */
+		public Builder setDotRadius(int radius) {
+			this.dotRadius = radius;
+			return this;
+		}
+
+		/**
+	     * Set the color value of the badge background.
+	     *
+	     * @param color the badge background color.
+	     */
+		public Builder setBadgeBackgroundColor(int color) {
+			this.badgeColor = color;
+			return this;
+		}
+
+		/**
+	     * Set the color value of the badge label.
+	     *
+	     * @param color the label color.
+	     */
+		public Builder setTextColor(int color) {
+			this.textColor = color;
+			return this;
+		}
+
+		/**
+	     * Set the typeface of the badge label.
+	     *
+	     * @param typeface the label typeface.
+	     */
+		public Builder setTypeface(Typeface typeface) {
+			this.typeface = typeface;
+			return this;
+		}
+
+		/**
+	     * Set the size of the badge label.
+	     *
+	     * @param size the label size in pixels, or 0 to keep the text size of the theme.
+	     */
+		public Builder setTextSize(float size) {
+			this.textSize = size;
+			return this;
+		}
+
+		/**
+	     * Create an immutable style from the current values.
+	     *
+	     */
+		public BadgeStyle build() {
+			return new BadgeStyle(this);
+		}
+
+		private int dipToPixels(int dip) {
+			return (int) (dip * density);
+		}
+
+	}
+
+}
@@ -0,0 +1,56 @@
+package com.readystatesoftware.viewbadger;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+
+/**
+ * Coalesces count updates made on background threads into a single main thread
+ * refresh of every affected badge, at most once per frame.
+ */
+final class BadgeUpdateQueue {
+
+	private static final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+	private static final ConcurrentLinkedQueue<BadgeView> queue = new ConcurrentLinkedQueue<BadgeView>();
+	private static final AtomicBoolean scheduled = new AtomicBoolean();
+
+	private static final long FRAME_MILLIS = 16;
+	private static volatile long lastDrainMillis;
+
+	private static final Runnable drain = new Runnable() {
+		@Override
+		public void run() {
+			lastDrainMillis = SystemClock.uptimeMillis();
+			scheduled.set(false);
+			// only refresh the badges queued so far, badges queued again while draining
+			// are refreshed by the next drain
+			for (int n = queue.size(); n > 0; n--) {
+				BadgeView badge = queue.poll();
+				if (badge == null) {
+					break;
+				}
+				badge.applyPendingCount();
+			}
+		}
+	};
+
+	private BadgeUpdateQueue() {
+	}
+
+	static void enqueue(BadgeView badge) {
+		queue.offer(badge);
+		if (scheduled.compareAndSet(false, true)) {
+			long delay = lastDrainMillis + FRAME_MILLIS - SystemClock.uptimeMillis();
+			mainHandler.postDelayed(drain, Math.max(0, delay));
+		}
+	}
+
+	static void remove(BadgeView badge) {
+		queue.remove(badge);
+	}
+
+}
@@ -1,11 +1,20 @@
 package com.readystatesoftware.viewbadger;
 
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Method;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import android.content.Context;
-import android.content.res.Resources;
+import android.content.res.TypedArray;
+import android.graphics.Canvas;
 import android.graphics.Color;
+import android.graphics.Paint;
 import android.graphics.Typeface;
-import android.graphics.drawable.ShapeDrawable;
-import android.graphics.drawable.shapes.RoundRectShape;
+import android.graphics.drawable.Drawable;
+import android.os.Build;
+import android.text.TextPaint;
+import android.text.TextUtils;
 import android.util.AttributeSet;
 import android.util.TypedValue;
 import android.view.Gravity;
@@ -13,17 +22,20 @@ import android.view.View;
 import android.view.ViewGroup;
 import android.view.ViewGroup.LayoutParams;
 import android.view.ViewParent;
-import android.view.animation.AccelerateInterpolator;
-import android.view.animation.AlphaAnimation;
 import android.view.animation.Animation;
-import android.view.animation.DecelerateInterpolator;
 import android.widget.FrameLayout;
 import android.widget.TabWidget;
 import android.widget.TextView;
 
 /**
  * A simple text label view that can be applied as a "badge" to any given {@link android.view.View}. 
- * This class is intended to be instantiated at runtime rather than included in XML layouts.
+ * Badges are usually created at runtime. A badge declared in an XML layout inside a 
+ * {@link BadgeOverlayLayout} with a badgeTarget attribute is attached to that target as 
+ * soon as the layout is inflated.
+ * 
+ * By default the target View is wrapped in a new {@link android.widget.FrameLayout} containing 
+ * the badge. Badges created with a {@link BadgeOverlayLayout} are instead drawn on top of the 
+ * target by the overlay and leave the existing view hierarchy untouched.
  * 
  * @author Jeff Gilfelt
  */
@@ -35,30 +47,102 @@ public class BadgeView extends TextView {
 	public static final int POSITION_BOTTOM_RIGHT = 4;
 	public static final int POSITION_CENTER = 5;
 	
-	private static final int DEFAULT_MARGIN_DIP = 5;
-	private static final int DEFAULT_LR_PADDING_DIP = 5;
-	private static final int DEFAULT_CORNER_RADIUS_DIP = 8;
-	private static final int DEFAULT_POSITION = POSITION_TOP_RIGHT;
-	private static final int DEFAULT_BADGE_COLOR = Color.parseColor("#CCFF0000"); //Color.RED;
-	private static final int DEFAULT_TEXT_COLOR = Color.WHITE;
+	public static final int VISIBILITY_MODE_GONE = 0;
+	public static final int VISIBILITY_MODE_LAYOUT_FREE = 1;
+	
+	static final int MODE_WRAP = 0;
+	static final int MODE_OVERLAY = 1;
+	
+	static final int DEFAULT_MARGIN_DIP = 5;
+	static final int DEFAULT_LR_PADDING_DIP = 5;
+	static final int DEFAULT_CORNER_RADIUS_DIP = 8;
+	static final int DEFAULT_DOT_RADIUS_DIP = 4;
+	static final int DEFAULT_BADGE_COLOR = Color.parseColor("#CCFF0000"); //Color.RED;
+	static final int DEFAULT_TEXT_COLOR = Color.WHITE;
 	
-	private static Animation fadeIn;
-	private static Animation fadeOut;
+	private static final char[] DIGITS = {'0', '1', '2', '3', '4', '5', '6', '7', '8', '9'};
 	
-	private Context context;
-	private View target;
+	private static final int MAX_CACHED_LABEL_LENGTH = 12;
+	
+	private WeakReference<View> target;
+	private FrameLayout container;
+	private LayoutParams targetLayoutParams;
 	
 	private int badgePosition;
 	private int badgeMarginH;
 	private int badgeMarginV;
 	private int badgeColor;
 	
+	private BadgeStyle style;
+	
+	private FrameLayout.LayoutParams badgeLayoutParams;
+	private boolean layoutParamsDirty;
+	
 	private boolean isShown;
 	
-	private ShapeDrawable badgeBg;
+	private BadgeFadeAnimation fade;
+	private int visibilityMode;
+	private boolean hidePending;
+	
+	private static final int LAYER_TYPE_NONE = 0;
+	private static final int LAYER_TYPE_HARDWARE = 2;
+	private static Method setLayerTypeMethod;
+	
+	private final AtomicInteger count = new AtomicInteger();
+	private final AtomicBoolean countPending = new AtomicBoolean();
+	private boolean isCounter;
+	private int maxCount;
+	private final char[] countBuffer = new char[BadgeNumberFormat.MAX_LENGTH];
+	private int countLength;
+	private BadgeNumberFormat numberFormat;
+	
+	private boolean stableWidth;
+	private int stableMinChars;
+	private int stableWidthPx;
+	private float digitWidth;
+	private float digitWidthTextSize;
+	private Typeface digitWidthTypeface;
+	
+	private Drawable badgeBg;
+	
+	private boolean dotMode;
+	private int dotRadius;
+	private Paint dotPaint;
+	
+	// a label set in dot mode is only passed to TextView once the dot is turned off
+	private boolean labelDeferred;
+	private CharSequence deferredLabel;
+	private BufferType deferredType;
+	
+	private final Paint.FontMetricsInt fontMetrics = new Paint.FontMetricsInt();
+	
+	// set by the sizing overrides below (possibly from the TextView constructor, so these 
+	// have no initializers); any of them rules out measuring from the cache
+	private boolean customMinWidth;
+	private boolean customMaxWidth;
+	private boolean customHeight;
+	private boolean customLineSpacing;
+	private boolean noFontPadding;
+	
+	private static final int[] FONT_PADDING_ATTRS = { android.R.attr.includeFontPadding };
+	
+	private BadgeAtlas atlas;
 	
 	private int targetTabIndex;
 	
+	private BadgeOverlayLayout overlay;
+	
+	private BadgeViewPool pool;
+	// restored by reset(), so a pooled badge does not keep its previous owner's layout
+	private int defaultGravity;
+	private float defaultTextSize;
+	
+	BadgeMetrics.Counters metrics;
+	
+	private int declaredTargetId;
+	private int declaredMode;
+	private boolean declaredShown;
+	
 	public BadgeView(Context context) {
 		this(context, (AttributeSet) null, android.R.attr.textViewStyle);
 	}
@@ -93,88 +177,408 @@ public class BadgeView extends TextView {
 		this(context, null, android.R.attr.textViewStyle, target, index);
 	}
 	
+	/**
+     * Constructor -
+     * 
+     * create a new BadgeView instance drawn over a target {@link android.view.View} by the 
+     * given overlay. The target is not re-parented.
+     *
+     * @param context context for this view.
+     * @param target the View to attach the badge to.
+     * @param overlay a BadgeOverlayLayout that is an ancestor of target.
+     */
+	public BadgeView(Context context, View target, BadgeOverlayLayout overlay) {
+		this(context, null, android.R.attr.textViewStyle, target, 0, overlay);
+	}
+	
+	/**
+     * Constructor -
+     * 
+     * create a new BadgeView instance drawn over a target {@link android.widget.TabWidget}
+     * tab at a given index by the given overlay. The tab is not re-parented.
+     *
+     * @param context context for this view.
+     * @param target the TabWidget to attach the badge to.
+     * @param index the position of the tab within the target.
+     * @param overlay a BadgeOverlayLayout that is an ancestor of target.
+     */
+	public BadgeView(Context context, TabWidget target, int index, BadgeOverlayLayout overlay) {
+		this(context, null, android.R.attr.textViewStyle, target, index, overlay);
+	}
+	
 	public BadgeView(Context context, AttributeSet attrs, int defStyle) {
 		this(context, attrs, defStyle, null, 0);
 	}
 	
+	/**
+	 * Create a hidden, unattached badge in the given style (or the default style if null). 
+	 * Used by the pool and attach transactions, which attach and show the badge themselves, 
+	 * so unlike the public constructors this does not show it.
+	 */
+	BadgeView(Context context, BadgeStyle style) {
+		super(context, null, android.R.attr.textViewStyle);
+		defaultGravity = getGravity();
+		defaultTextSize = getTextSize();
+		layoutParamsDirty = true;
+		setBadgeStyle(style != null ? style : BadgeStyle.getDefault(context));
+		setVisibility(View.GONE);
+	}
+	
 	public BadgeView(Context context, AttributeSet attrs, int defStyle, View target, int tabIndex) {
+		this(context, attrs, defStyle, target, tabIndex, null);
+	}
+	
+	public BadgeView(Context context, AttributeSet attrs, int defStyle, View target, int tabIndex, 
+			BadgeOverlayLayout overlay) {
 		super(context, attrs, defStyle);
-		init(context, target, tabIndex);
+		defaultGravity = getGravity();
+		defaultTextSize = getTextSize();
+		BadgeStyle style = null;
+		if (attrs != null) {
+			style = BadgeStyle.fromAttributes(context, attrs);
+			readAttributes(context, attrs);
+		}
+		init(target, tabIndex, overlay, style);
+	}
+	
+	private void readAttributes(Context context, AttributeSet attrs) {
+		TypedArray a;
+		BadgeAttributes viewAttrs = BadgeAttributes.view(context);
+		if (viewAttrs != null) {
+			a = context.obtainStyledAttributes(attrs, viewAttrs.attrs, 0, 0);
+			try {
+				declaredTargetId = a.getResourceId(viewAttrs.index(BadgeAttributes.VIEW_TARGET), 0);
+				declaredMode = a.getInt(viewAttrs.index(BadgeAttributes.VIEW_MODE), MODE_WRAP);
+				dotMode = a.getBoolean(viewAttrs.index(BadgeAttributes.VIEW_DOT), false);
+			} finally {
+				a.recycle();
+			}
+		}
+		// TextView reads includeFontPadding without calling its setter
+		a = context.obtainStyledAttributes(attrs, FONT_PADDING_ATTRS, 0, 0);
+		try {
+			noFontPadding = !a.getBoolean(0, true);
+		} finally {
+			a.recycle();
+		}
+		// keep the declared visibility until the badge is attached to its target
+		declaredShown = getVisibility() == View.VISIBLE;
+	}
+
+	/**
+     * Returns the badge attached to a target {@link android.view.View}, creating and 
+     * attaching a new one only if the target has not been badged yet. Unlike the 
+     * constructor, calling this repeatedly for the same target never wraps it again.
+     *
+     * @param context context for a new badge.
+     * @param target the View to attach the badge to.
+     */
+	public static BadgeView attach(Context context, View target) {
+		BadgeView badge = getBadge(target);
+		return badge != null ? badge : new BadgeView(context, target);
+	}
+	
+	/**
+     * Returns the badge drawn over a target {@link android.view.View} by an overlay, 
+     * creating and attaching a new one only if the target has not been badged yet.
+     *
+     * @param context context for a new badge.
+     * @param target the View to attach the badge to.
+     * @param overlay a BadgeOverlayLayout that is an ancestor of target.
+     */
+	public static BadgeView attach(Context context, View target, BadgeOverlayLayout overlay) {
+		BadgeView badge = getBadge(target);
+		return badge != null ? badge : new BadgeView(context, target, overlay);
+	}
+	
+	/**
+     * Returns the badge attached to a {@link android.widget.TabWidget} tab, creating and 
+     * attaching a new one only if the tab has not been badged yet.
+     *
+     * @param context context for a new badge.
+     * @param target the TabWidget to attach the badge to.
+     * @param index the position of the tab within the target.
+     */
+	public static BadgeView attach(Context context, TabWidget target, int index) {
+		BadgeView badge = getBadge(target, index);
+		return badge != null ? badge : new BadgeView(context, target, index);
+	}
+	
+	/**
+     * Returns the badge attached to a target {@link android.view.View}, or null if the 
+     * View has not been badged.
+     *
+     * @param target a View that may have been badged.
+     */
+	public static BadgeView getBadge(View target) {
+		return BadgeRegistry.get(target);
+	}
+	
+	/**
+     * Returns the badge attached to a {@link android.widget.TabWidget} tab, or null if the 
+     * tab has not been badged.
+     *
+     * @param target the TabWidget containing the tab.
+     * @param index the position of the tab within the target.
+     */
+	public static BadgeView getBadge(TabWidget target, int index) {
+		View tab = target.getChildTabViewAt(index);
+		return tab == null ? null : BadgeRegistry.get(tab);
 	}
 
-	private void init(Context context, View target, int tabIndex) {
+	private void init(View target, int tabIndex, BadgeOverlayLayout overlay, BadgeStyle style) {
 		
-		this.context = context;
-		this.target = target;
 		this.targetTabIndex = tabIndex;
+		this.overlay = overlay;
 		
-		// apply defaults
-		badgePosition = DEFAULT_POSITION;
-		badgeMarginH = dipToPixels(DEFAULT_MARGIN_DIP);
-		badgeMarginV = badgeMarginH;
-		badgeColor = DEFAULT_BADGE_COLOR;
-		
-		setTypeface(Typeface.DEFAULT_BOLD);
-		int paddingPixels = dipToPixels(DEFAULT_LR_PADDING_DIP);
-		setPadding(paddingPixels, 0, paddingPixels, 0);
-		setTextColor(DEFAULT_TEXT_COLOR);
-		
-		fadeIn = new AlphaAnimation(0, 1);
-		fadeIn.setInterpolator(new DecelerateInterpolator());
-		fadeIn.setDuration(200);
-
-		fadeOut = new AlphaAnimation(1, 0);
-		fadeOut.setInterpolator(new AccelerateInterpolator());
-		fadeOut.setDuration(200);
+		// apply defaults, or the style declared in XML
+		layoutParamsDirty = true;
+		setBadgeStyle(style != null ? style : BadgeStyle.getDefault(getContext()));
 		
 		isShown = false;
 		
-		if (this.target != null) {
-			applyTo(this.target);
+		if (target != null) {
+			applyTo(target);
+		} else if (declaredTargetId != 0) {
+			// attached by the enclosing BadgeOverlayLayout once the layout is inflated
+			setVisibility(View.GONE);
 		} else {
 			show();
 		}
 		
 	}
+	
+	/**
+	 * Attach a badge declared in XML with a badgeTarget to that target. Called by the 
+	 * enclosing BadgeOverlayLayout after the badge has been removed from the layout.
+	 */
+	void attachDeclared(View target, BadgeOverlayLayout enclosing) {
+		declaredTargetId = 0;
+		attachTo(target, 0, declaredMode == MODE_OVERLAY ? enclosing : null);
+		if (declaredShown) {
+			show();
+		}
+	}
+	
+	int getDeclaredTargetId() {
+		return declaredTargetId;
+	}
+	
+	@Override
+	protected void onAttachedToWindow() {
+		super.onAttachedToWindow();
+		if (declaredTargetId != 0) {
+			// an enclosing BadgeOverlayLayout would have attached and removed this badge
+			throw new IllegalStateException("a BadgeView with a badgeTarget must be declared inside a BadgeOverlayLayout");
+		}
+	}
 
+	void attachTo(View target, int tabIndex, BadgeOverlayLayout overlay) {
+		attachTo(target, tabIndex, overlay, true);
+	}
+	
+	void attachTo(View target, int tabIndex, BadgeOverlayLayout overlay, boolean invalidate) {
+		if (getTarget() != null || getParent() != null) {
+			throw new IllegalStateException("badge is already attached, call detach() first");
+		}
+		this.targetTabIndex = tabIndex;
+		this.overlay = overlay;
+		applyTo(target, invalidate);
+	}
+	
 	private void applyTo(View target) {
+		applyTo(target, true);
+	}
+	
+	private void applyTo(View target, boolean invalidate) {
+		boolean instrument = BadgeMetrics.enabled;
+		if (instrument) {
+			BadgeMetrics.beginSection("BadgeView.applyTo");
+		}
+		try {
+			applyToHierarchy(target, invalidate);
+			if (instrument) {
+				// wrapped badges add their container as an extra level above the target
+				BadgeMetrics.onAttach(this, overlay != null ? 0 : 1);
+			}
+		} finally {
+			if (instrument) {
+				BadgeMetrics.endSection();
+			}
+		}
+	}
+	
+	private void applyToHierarchy(View target, boolean invalidate) {
+		
+		if (overlay != null) {
+			applyToOverlay(target);
+			return;
+		}
 		
 		LayoutParams lp = target.getLayoutParams();
 		ViewParent parent = target.getParent();
-		FrameLayout container = new FrameLayout(context);
+		if (!(target instanceof TabWidget) && !(parent instanceof ViewGroup)) {
+			throw new IllegalArgumentException("target must have a ViewGroup parent to be wrapped");
+		}
+		FrameLayout container = new FrameLayout(getContext());
+		this.container = container;
+		
+		// fill the container before adding it, so that only the final addView requests a layout
+		this.setVisibility(View.GONE);
 		
 		if (target instanceof TabWidget) {
 			
 			// set target to the relevant tab child container
 			target = ((TabWidget) target).getChildTabViewAt(targetTabIndex);
-			this.target = target;
 			
+			container.addView(this);
 			((ViewGroup) target).addView(container, 
 					new LayoutParams(LayoutParams.FILL_PARENT, LayoutParams.FILL_PARENT));
 			
-			this.setVisibility(View.GONE);
-			container.addView(this);
+			this.target = BadgeRegistry.register(target, this);
 			
 		} else {
 			
-			// TODO verify that parent is indeed a ViewGroup
 			ViewGroup group = (ViewGroup) parent; 
 			int index = group.indexOfChild(target);
 			
-			group.removeView(target);
-			group.addView(container, index, lp);
-			
+			group.removeViewInLayout(target);
 			container.addView(target);
-	
-			this.setVisibility(View.GONE);
 			container.addView(this);
+			group.addView(container, index, lp);
+			
+			this.target = BadgeRegistry.register(target, this);
+			this.targetLayoutParams = lp;
 			
-			group.invalidate();
+			if (invalidate) {
+				group.invalidate();
+			}
 			
 		}
 		
 	}
 	
+	private void applyToOverlay(View target) {
+		
+		if (target instanceof TabWidget) {
+			target = ((TabWidget) target).getChildTabViewAt(targetTabIndex);
+		}
+		
+		this.target = BadgeRegistry.register(target, this);
+		this.setVisibility(View.GONE);
+		applyLayoutParams();
+		overlay.addBadge(this);
+		
+	}
+	
+	/**
+     * Detach the badge from its target. A wrapped target is restored to its parent at 
+     * the position of the wrapper, with its original layout params, and the badge drops 
+     * its references to the target and wrapper.
+     * 
+     */
+	public void detach() {
+		
+		View target = getTarget();
+		
+		if (container != null) {
+			ViewParent parent = container.getParent();
+			container.removeView(this);
+			if (parent instanceof ViewGroup) {
+				ViewGroup group = (ViewGroup) parent;
+				if (targetLayoutParams != null && target != null) {
+					int index = group.indexOfChild(container);
+					container.removeView(target);
+					group.removeView(container);
+					group.addView(target, index, targetLayoutParams);
+				} else {
+					// tab badges only add their container to the tab view
+					group.removeView(container);
+				}
+			}
+		}
+		
+		release();
+		
+		if (pool != null) {
+			BadgeViewPool p = pool;
+			pool = null;
+			p.recycle(this);
+		}
+		
+	}
+	
+	void release() {
+		
+		if (overlay != null) {
+			overlay.removeBadge(this);
+		}
+		View target = getTarget();
+		if (target != null) {
+			BadgeRegistry.unregister(target, this);
+		}
+		
+		clearAnimation();
+		setVisibility(View.GONE);
+		isShown = false;
+		
+		this.target = null;
+		this.overlay = null;
+		this.container = null;
+		this.targetLayoutParams = null;
+		
+	}
+	
+	void reset() {
+		
+		setOnClickListener(null);
+		atlas = null;
+		numberFormat = null;
+		setDotMode(false);
+		setClickable(false);
+		setVisibilityMode(VISIBILITY_MODE_GONE);
+		setStableWidth(false);
+		setGravity(defaultGravity);
+		// the default style only sets a text size if it has one
+		setTextSize(TypedValue.COMPLEX_UNIT_PX, defaultTextSize);
+		maxCount = 0;
+		// drop any refresh still queued by incrementAsync so it cannot render into the
+		// recycled badge
+		countPending.set(false);
+		BadgeUpdateQueue.remove(this);
+		count.set(0);
+		setText(null);
+		
+		layoutParamsDirty = true;
+		setBadgeStyle(BadgeStyle.getDefault(getContext()));
+		if (getBackground() != badgeBg) {
+			// drop any custom background so that show() applies the default one again
+			setBackgroundDrawable(null);
+		}
+		
+		clearAnimation();
+		setVisibility(View.GONE);
+		isShown = false;
+		hidePending = false;
+		
+	}
+	
+	void setPool(BadgeViewPool pool) {
+		this.pool = pool;
+	}
+	
+	/**
+     * Release every badge whose target View has been garbage collected, removing it 
+     * from its overlay and dropping its references. Badges only hold weak references 
+     * to their targets, so this can be called periodically (for example from 
+     * onLowMemory) to clean up badges kept by caches or overlays.
+     * 
+     * @return the number of badges released.
+     */
+	public static int reapBadges() {
+		return BadgeRegistry.reap();
+	}
+	
 	/**
      * Make the badge visible in the UI.
      * 
@@ -189,7 +593,7 @@ public class BadgeView extends TextView {
      * @param animate flag to apply the default fade-in animation.
      */
 	public void show(boolean animate) {
-		show(animate, fadeIn);
+		show(animate, animate ? prepareFade(1.0f) : null);
 	}
 	
 	/**
@@ -215,7 +619,7 @@ public class BadgeView extends TextView {
      * @param animate flag to apply the default fade-out animation.
      */
 	public void hide(boolean animate) {
-		hide(animate, fadeOut);
+		hide(animate, animate ? prepareFade(0.0f) : null);
 	}
 	
 	/**
@@ -241,7 +645,11 @@ public class BadgeView extends TextView {
      * @param animate flag to apply the default fade-in/out animation.
      */
 	public void toggle(boolean animate) {
-		toggle(animate, fadeIn, fadeOut);
+		if (isShown) {
+			hide(animate);
+		} else {
+			show(animate);
+		}
 	}
 	
 	/**
@@ -255,29 +663,165 @@ public class BadgeView extends TextView {
 	}
 	
 	private void show(boolean animate, Animation anim) {
+		boolean instrument = BadgeMetrics.enabled;
+		if (instrument) {
+			BadgeMetrics.beginSection("BadgeView.show");
+		}
+		try {
+			showBadge(animate, anim);
+		} finally {
+			if (instrument) {
+				BadgeMetrics.endSection();
+			}
+		}
+	}
+	
+	private void showBadge(boolean animate, Animation anim) {
 		if (getBackground() == null) {
 			if (badgeBg == null) {
 				badgeBg = getDefaultBackground();
 			}
-			setBackgroundDrawable(badgeBg);
+			if (!drawsOwnBackground()) {
+				setBackgroundDrawable(badgeBg);
+			}
+		}
+		if (layoutParamsDirty) {
+			applyLayoutParams();
 		}
-		applyLayoutParams();
 		
-		if (animate) {
-			this.startAnimation(anim);
+		hidePending = false;
+		if (animate && anim != null) {
+			startBadgeAnimation(anim);
 		}
 		this.setVisibility(View.VISIBLE);
 		isShown = true;
 	}
 	
 	private void hide(boolean animate, Animation anim) {
-		this.setVisibility(View.GONE);
-		if (animate) {
-			this.startAnimation(anim);
+		boolean instrument = BadgeMetrics.enabled;
+		if (instrument) {
+			BadgeMetrics.beginSection("BadgeView.hide");
+		}
+		try {
+			hideBadge(animate, anim);
+		} finally {
+			if (instrument) {
+				BadgeMetrics.endSection();
+			}
+		}
+	}
+	
+	private void hideBadge(boolean animate, Animation anim) {
+		if (visibilityMode == VISIBILITY_MODE_LAYOUT_FREE) {
+			if (animate && anim != null) {
+				// stay visible until the animation ends so that it is not cut off
+				hidePending = true;
+				startBadgeAnimation(anim);
+			} else if (!hidePending) {
+				this.setVisibility(View.INVISIBLE);
+			}
+		} else {
+			this.setVisibility(View.GONE);
+			if (animate && anim != null) {
+				this.startAnimation(anim);
+			}
 		}
 		isShown = false;
 	}
 	
+	@Override
+	public void startAnimation(Animation animation) {
+		if (BadgeMetrics.enabled) {
+			BadgeMetrics.onAnimationStart(this);
+		}
+		super.startAnimation(animation);
+		if (overlay != null) {
+			overlay.invalidateBadge(this);
+		}
+	}
+	
+	@Override
+	public void setVisibility(int visibility) {
+		super.setVisibility(visibility);
+		// View only invalidates its parent here, overlay badges have none
+		if (overlay != null) {
+			overlay.invalidateBadge(this);
+		}
+	}
+	
+	private void startBadgeAnimation(Animation anim) {
+		if (visibilityMode == VISIBILITY_MODE_LAYOUT_FREE) {
+			setLayerTypeCompat(LAYER_TYPE_HARDWARE);
+		}
+		this.startAnimation(anim);
+	}
+	
+	@Override
+	protected void onAnimationEnd() {
+		super.onAnimationEnd();
+		if (visibilityMode == VISIBILITY_MODE_LAYOUT_FREE) {
+			setLayerTypeCompat(LAYER_TYPE_NONE);
+			if (hidePending) {
+				hidePending = false;
+				this.setVisibility(View.INVISIBLE);
+			}
+		}
+	}
+	
+	/**
+     * Returns how this badge is hidden.
+     * 
+     * one of VISIBILITY_MODE_GONE, VISIBILITY_MODE_LAYOUT_FREE.
+     * 
+     */
+	public int getVisibilityMode() {
+		return visibilityMode;
+	}
+	
+	/**
+     * Set how this badge is hidden. In VISIBILITY_MODE_GONE (the default) a hidden badge 
+     * is GONE, so showing or hiding it lays out its container again. In 
+     * VISIBILITY_MODE_LAYOUT_FREE a hidden badge stays laid out but INVISIBLE, fade-out 
+     * animations run before it is hidden, and animations are drawn through a hardware 
+     * layer where available, so toggling the badge only costs a redraw.
+     * 
+     * @param mode one of VISIBILITY_MODE_GONE, VISIBILITY_MODE_LAYOUT_FREE.
+     */
+	public void setVisibilityMode(int mode) {
+		this.visibilityMode = mode;
+		if (!isShown && getVisibility() != View.VISIBLE) {
+			setVisibility(mode == VISIBILITY_MODE_LAYOUT_FREE ? View.INVISIBLE : View.GONE);
+		}
+	}
+	
+	private void setLayerTypeCompat(int layerType) {
+		// View.setLayerType() is only available from API level 11, and overlay badges are 
+		// drawn directly by the overlay, which ignores their layer
+		if (Build.VERSION.SDK_INT < 11 || overlay != null) {
+			return;
+		}
+		try {
+			if (setLayerTypeMethod == null) {
+				setLayerTypeMethod = View.class.getMethod("setLayerType", int.class, Paint.class);
+			}
+			setLayerTypeMethod.invoke(this, layerType, null);
+		} catch (Exception e) {
+			// drawing without a layer is still correct
+		}
+	}
+	
+	/**
+	 * Returns this badge's fade animation set to run towards the given alpha, or null if 
+	 * it is already running towards it and should not be restarted.
+	 */
+	private Animation prepareFade(float toAlpha) {
+		if (fade == null) {
+			fade = new BadgeFadeAnimation();
+		}
+		boolean running = getAnimation() == fade && !fade.hasEnded();
+		return fade.fadeTo(toAlpha, running) ? fade : null;
+	}
+	
 	private void toggle(boolean animate, Animation animIn, Animation animOut) {
 		if (isShown) {
 			hide(animate && (animOut != null), animOut);	
@@ -290,23 +834,27 @@ public class BadgeView extends TextView {
      * Increment the numeric badge label. If the current badge label cannot be converted to
      * an integer value, its label will be set to "0".
      * 
+     * Once the label is numeric, the count is kept as an int and written to a reused char 
+     * buffer, so repeated increments do not allocate.
+     * 
      * @param offset the increment offset.
      */
 	public int increment(int offset) {
-		CharSequence txt = getText();
-		int i;
-		if (txt != null) {
-			try {
-				i = Integer.parseInt(txt.toString());
-			} catch (NumberFormatException e) {
-				i = 0;
+		boolean instrument = BadgeMetrics.enabled;
+		if (instrument) {
+			BadgeMetrics.beginSection("BadgeView.increment");
+		}
+		try {
+			// a numeric label set with setText has already seeded the count
+			int i = count.addAndGet(offset);
+			isCounter = true;
+			renderCount(i);
+			return i;
+		} finally {
+			if (instrument) {
+				BadgeMetrics.endSection();
 			}
-		} else {
-			i = 0;
 		}
-		i = i + offset;
-		setText(String.valueOf(i));
-		return i;
 	}
 	
 	/**
@@ -319,58 +867,718 @@ public class BadgeView extends TextView {
 		return increment(-offset);
 	}
 	
-	private ShapeDrawable getDefaultBackground() {
-		
-		int r = dipToPixels(DEFAULT_CORNER_RADIUS_DIP);
-		float[] outerR = new float[] {r, r, r, r, r, r, r, r};
-        
-		RoundRectShape rr = new RoundRectShape(outerR, null, null);
-		ShapeDrawable drawable = new ShapeDrawable(rr);
-		drawable.getPaint().setColor(badgeColor);
-		
-		return drawable;
-		
+	/**
+     * Set the numeric badge label.
+     * 
+     * @param count the count to display.
+     */
+	public void setCount(int count) {
+		this.count.set(count);
+		isCounter = true;
+		renderCount(count);
 	}
 	
-	private void applyLayoutParams() {
-		
-		FrameLayout.LayoutParams lp = new FrameLayout.LayoutParams(LayoutParams.WRAP_CONTENT, LayoutParams.WRAP_CONTENT);
-		
-		switch (badgePosition) {
-		case POSITION_TOP_LEFT:
-			lp.gravity = Gravity.LEFT | Gravity.TOP;
-			lp.setMargins(badgeMarginH, badgeMarginV, 0, 0);
-			break;
-		case POSITION_TOP_RIGHT:
-			lp.gravity = Gravity.RIGHT | Gravity.TOP;
-			lp.setMargins(0, badgeMarginV, badgeMarginH, 0);
-			break;
-		case POSITION_BOTTOM_LEFT:
-			lp.gravity = Gravity.LEFT | Gravity.BOTTOM;
-			lp.setMargins(badgeMarginH, 0, 0, badgeMarginV);
-			break;
+	/**
+     * Increment the numeric badge label from any thread. The count is updated atomically 
+     * and the label is refreshed on the main thread, at most once per frame no matter 
+     * how many increments arrive in the meantime.
+     * 
+     * The increment applies to the count most recently set with {@link #setCount(int)}, 
+     * {@link #increment(int)}, one of the async methods or a numeric label set with 
+     * setText (0 by default, or after a non-numeric label).
+     * 
+     * @param offset the increment offset.
+     * @return the new count.
+     */
+	public int incrementAsync(int offset) {
+		int i = count.addAndGet(offset);
+		postCount();
+		return i;
+	}
+	
+	/**
+     * Decrement the numeric badge label from any thread.
+     * 
+     * @param offset the decrement offset.
+     * @return the new count.
+     * @see #incrementAsync(int)
+     */
+	public int decrementAsync(int offset) {
+		return incrementAsync(-offset);
+	}
+	
+	/**
+     * Set the numeric badge label from any thread. Only the latest count is displayed 
+     * when the label is refreshed on the main thread.
+     * 
+     * @param count the count to display.
+     */
+	public void setCountAsync(int count) {
+		this.count.set(count);
+		postCount();
+	}
+	
+	private void postCount() {
+		if (countPending.compareAndSet(false, true)) {
+			BadgeUpdateQueue.enqueue(this);
+		}
+	}
+	
+	void applyPendingCount() {
+		// clear the flag before reading so a concurrent update queues another refresh,
+		// and skip badges that were reset after being queued
+		if (!countPending.getAndSet(false)) {
+			return;
+		}
+		isCounter = true;
+		renderCount(count.get());
+	}
+	
+	private void renderCount(int count) {
+		if (dotMode) {
+			// the dot looks the same for every count, format it when the label is shown
+			labelDeferred = true;
+			deferredLabel = null;
+			return;
+		}
+		int len = formatCount(count);
+		if (stableWidth) {
+			updateStableWidth(len, getPaint().measureText(countBuffer, 0, len));
+		}
+		setText(countBuffer, 0, len);
+		countLength = len;
+	}
+	
+	/**
+     * Returns the numeric value of the badge label, or 0 if the label is not numeric.
+     * 
+     */
+	public int getCount() {
+		return isCounter ? count.get() : parseCount(getText());
+	}
+	
+	boolean isCounter() {
+		return isCounter;
+	}
+	
+	/**
+     * Returns the largest count displayed before the label is capped, or 0 if counts are not capped.
+     * 
+     */
+	public int getMaxCount() {
+		return maxCount;
+	}
+	
+	/**
+     * Set the largest count displayed before the label is capped. Counts above the cap 
+     * are displayed as the cap followed by "+", for example "99+".
+     * 
+     * @param maxCount the cap, or 0 to display every count in full.
+     */
+	public void setMaxCount(int maxCount) {
+		this.maxCount = maxCount;
+		if (isCounter) {
+			renderCount(count.get());
+		}
+	}
+	
+	/**
+     * Returns the format numeric labels are written with, or null if they are written as 
+     * plain digits.
+     * 
+     */
+	public BadgeNumberFormat getNumberFormat() {
+		return numberFormat;
+	}
+	
+	/**
+     * Set the format numeric labels are written with, for example to abbreviate large 
+     * counts or use locale digits. Labels are still written without allocating.
+     * 
+     * @param format the format, or null to write plain digits.
+     */
+	public void setNumberFormat(BadgeNumberFormat format) {
+		this.numberFormat = format;
+		if (isCounter) {
+			renderCount(count.get());
+		}
+	}
+	
+	@Override
+	public void setText(CharSequence text, BufferType type) {
+		// a label set from outside the counter path seeds the count, so the sync and async 
+		// increments both continue from a numeric label
+		isCounter = false;
+		if (count != null) {
+			// null while TextView's constructor sets the initial text
+			count.set(parseCount(text));
+		}
+		if (dotMode) {
+			labelDeferred = true;
+			// TextView never returns a null label
+			deferredLabel = text == null ? "" : text;
+			deferredType = type;
+			return;
+		}
+		if (stableWidth) {
+			int len = text == null ? 0 : text.length();
+			updateStableWidth(len, len == 0 ? 0 : getPaint().measureText(text, 0, len));
+		}
+		super.setText(text, type);
+	}
+	
+	@Override
+	public CharSequence getText() {
+		if (labelDeferred) {
+			return isCounter ? new String(countBuffer, 0, formatCount(count.get())) : deferredLabel;
+		}
+		return super.getText();
+	}
+	
+	@Override
+	protected void onTextChanged(CharSequence text, int start, int before, int after) {
+		// called for every label change, including the char buffer path used by counters
+		if (BadgeMetrics.enabled) {
+			BadgeMetrics.onTextUpdate(this);
+		}
+		super.onTextChanged(text, start, before, after);
+	}
+	
+	/**
+     * Reserve the badge width per label length so that label changes which keep the same 
+     * number of characters (for example "41" to "42") only redraw the badge rather than 
+     * laying it out again. The label is centered within the reserved width.
+     * 
+     * @param stableWidth true to reserve width per label length.
+     */
+	public void setStableWidth(boolean stableWidth) {
+		setStableWidth(stableWidth, 0);
+	}
+	
+	/**
+     * Reserve the badge width per label length so that label changes which keep the same 
+     * number of characters (for example "41" to "42") only redraw the badge rather than 
+     * laying it out again. The label is centered within the reserved width.
+     * 
+     * @param stableWidth true to reserve width per label length.
+     * @param minChars the minimum number of characters to reserve width for, so that labels 
+     * up to this length never change the badge width.
+     */
+	public void setStableWidth(boolean stableWidth, int minChars) {
+		this.stableWidth = stableWidth;
+		this.stableMinChars = minChars;
+		stableWidthPx = 0;
+		if (stableWidth) {
+			setGravity(Gravity.CENTER);
+			CharSequence text = getText();
+			int len = text == null ? 0 : text.length();
+			updateStableWidth(len, len == 0 ? 0 : getPaint().measureText(text, 0, len));
+		} else {
+			setMinWidth(0);
+			setMaxWidth(Integer.MAX_VALUE);
+		}
+	}
+	
+	/**
+     * Does this badge reserve its width per label length?
+     * 
+     */
+	public boolean hasStableWidth() {
+		return stableWidth;
+	}
+	
+	private void updateStableWidth(int len, float textWidth) {
+		
+		TextPaint paint = getPaint();
+		if (digitWidthTextSize != paint.getTextSize() || digitWidthTypeface != paint.getTypeface()) {
+			digitWidth = 0;
+			for (int i = 0; i < DIGITS.length; i++) {
+				digitWidth = Math.max(digitWidth, paint.measureText(DIGITS, i, 1));
+			}
+			digitWidthTextSize = paint.getTextSize();
+			digitWidthTypeface = paint.getTypeface();
+		}
+		
+		float reserved = Math.max(len, stableMinChars) * digitWidth;
+		int width = (int) Math.ceil(Math.max(reserved, textWidth)) + getPaddingLeft() + getPaddingRight();
+		if (width != stableWidthPx) {
+			// only a change in width needs a layout pass, TextView just redraws a fixed width label
+			stableWidthPx = width;
+			setWidth(width);
+		}
+		
+	}
+	
+	private int formatCount(int count) {
+		if (numberFormat != null) {
+			return numberFormat.format(count, maxCount, countBuffer);
+		}
+		if (maxCount > 0 && count > maxCount) {
+			int len = formatInt(maxCount, countBuffer);
+			countBuffer[len] = '+';
+			return len + 1;
+		}
+		return formatInt(count, countBuffer);
+	}
+	
+	static int formatInt(int value, char[] buf) {
+		long v = value;
+		int len = 0;
+		if (v < 0) {
+			buf[len++] = '-';
+			v = -v;
+		}
+		int start = len;
+		do {
+			buf[len++] = (char) ('0' + (v % 10));
+			v /= 10;
+		} while (v > 0);
+		// digits were written least significant first
+		for (int i = start, j = len - 1; i < j; i++, j--) {
+			char c = buf[i];
+			buf[i] = buf[j];
+			buf[j] = c;
+		}
+		return len;
+	}
+	
+	private static int parseCount(CharSequence txt) {
+		if (txt == null || txt.length() == 0) {
+			return 0;
+		}
+		int len = txt.length();
+		int i = 0;
+		boolean negative = false;
+		char first = txt.charAt(0);
+		if (first == '-' || first == '+') {
+			negative = first == '-';
+			i++;
+			if (len == 1) {
+				return 0;
+			}
+		}
+		long value = 0;
+		for (; i < len; i++) {
+			char c = txt.charAt(i);
+			if (c < '0' || c > '9') {
+				return 0;
+			}
+			value = value * 10 + (c - '0');
+			if (value > (long) Integer.MAX_VALUE + 1) {
+				return 0;
+			}
+		}
+		value = negative ? -value : value;
+		if (value > Integer.MAX_VALUE) {
+			return 0;
+		}
+		return (int) value;
+	}
+	
+	private Drawable getDefaultBackground() {
+		if (badgeColor == style.getBadgeBackgroundColor()) {
+			return style.newBackground();
+		}
+		return BadgeBackgroundCache.get(badgeColor, style.getCornerRadius(), style.getDensityDpi());
+	}
+	
+	private void applyLayoutParams() {
+		
+		FrameLayout.LayoutParams lp = badgeLayoutParams;
+		if (lp == null) {
+			lp = new FrameLayout.LayoutParams(LayoutParams.WRAP_CONTENT, LayoutParams.WRAP_CONTENT);
+			badgeLayoutParams = lp;
+		}
+		
+		if (dotMode) {
+			lp.width = 2 * dotRadius;
+			lp.height = lp.width;
+		} else {
+			lp.width = LayoutParams.WRAP_CONTENT;
+			lp.height = LayoutParams.WRAP_CONTENT;
+		}
+		
+		lp.gravity = getGravity(badgePosition);
+		switch (badgePosition) {
+		case POSITION_TOP_LEFT:
+			lp.setMargins(badgeMarginH, badgeMarginV, 0, 0);
+			break;
+		case POSITION_TOP_RIGHT:
+			lp.setMargins(0, badgeMarginV, badgeMarginH, 0);
+			break;
+		case POSITION_BOTTOM_LEFT:
+			lp.setMargins(badgeMarginH, 0, 0, badgeMarginV);
+			break;
 		case POSITION_BOTTOM_RIGHT:
-			lp.gravity = Gravity.RIGHT | Gravity.BOTTOM;
 			lp.setMargins(0, 0, badgeMarginH, badgeMarginV);
 			break;
 		case POSITION_CENTER:
-			lp.gravity = Gravity.CENTER;
 			lp.setMargins(0, 0, 0, 0);
 			break;
 		default:
 			break;
 		}
 		
+		layoutParamsDirty = false;
 		setLayoutParams(lp);
 		
 	}
+	
+	static int getGravity(int position) {
+		switch (position) {
+		case POSITION_TOP_LEFT:
+			return Gravity.LEFT | Gravity.TOP;
+		case POSITION_TOP_RIGHT:
+			return Gravity.RIGHT | Gravity.TOP;
+		case POSITION_BOTTOM_LEFT:
+			return Gravity.LEFT | Gravity.BOTTOM;
+		case POSITION_BOTTOM_RIGHT:
+			return Gravity.RIGHT | Gravity.BOTTOM;
+		case POSITION_CENTER:
+			return Gravity.CENTER;
+		default:
+			return -1;
+		}
+	}
 
+	/**
+     * Returns the atlas numeric labels are drawn from, or null if the badge always renders its label.
+     * 
+     */
+	public BadgeAtlas getBadgeAtlas() {
+		return atlas;
+	}
+	
+	/**
+     * Draw numeric labels covered by the given atlas from its pre-rendered images. The 
+     * atlas is only used while the badge shows its default background and its colors, 
+     * text size and size match the atlas style, otherwise the label is rendered as usual.
+     * 
+     * @param atlas the atlas, or null to always render the label.
+     */
+	public void setBadgeAtlas(BadgeAtlas atlas) {
+		this.atlas = atlas;
+		updateBackground();
+		invalidate();
+	}
+	
+	@Override
+	protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+		if (!measureLabel(widthMeasureSpec, heightMeasureSpec)) {
+			super.onMeasure(widthMeasureSpec, heightMeasureSpec);
+		}
+	}
+	
+	/**
+	 * Size a short single-line label from the shared measurement cache rather than 
+	 * running a full TextView measurement. Returns false if the label needs one.
+	 */
+	private boolean measureLabel(int widthMeasureSpec, int heightMeasureSpec) {
+		
+		if (dotMode) {
+			int size = 2 * dotRadius;
+			setMeasuredDimension(resolveSize(size, widthMeasureSpec), resolveSize(size, heightMeasureSpec));
+			return true;
+		}
+		if (stableWidth) {
+			return false;
+		}
+		if (customMinWidth || customMaxWidth || customHeight || customLineSpacing || noFontPadding
+				|| getTransformationMethod() != null) {
+			return false;
+		}
+		TextPaint paint = getPaint();
+		float fontScale = getResources().getConfiguration().fontScale;
+		float textWidth;
+		if (isCounter) {
+			// counter labels are shown straight from the count buffer
+			if (countLength == 0) {
+				return false;
+			}
+			textWidth = BadgeMeasureCache.measureText(countBuffer, countLength, paint, fontScale);
+		} else {
+			// only a plain string is sized exactly like the cached measurement, spans may 
+			// change the font or replace characters
+			CharSequence text = getText();
+			if (!(text instanceof String)) {
+				return false;
+			}
+			int len = text.length();
+			if (len == 0 || len > MAX_CACHED_LABEL_LENGTH || TextUtils.indexOf(text, '\n') >= 0) {
+				return false;
+			}
+			textWidth = BadgeMeasureCache.measureText(text, paint, fontScale);
+		}
+		paint.getFontMetricsInt(fontMetrics);
+		
+		int width = (int) Math.ceil(textWidth) + getCompoundPaddingLeft() + getCompoundPaddingRight();
+		int height = fontMetrics.bottom - fontMetrics.top + getCompoundPaddingTop() + getCompoundPaddingBottom();
+		width = Math.max(width, getSuggestedMinimumWidth());
+		height = Math.max(height, getSuggestedMinimumHeight());
+		
+		// the text layout is created on the next draw, for the width resolved here
+		setMeasuredDimension(resolveSize(width, widthMeasureSpec), resolveSize(height, heightMeasureSpec));
+		return true;
+		
+	}
+	
+	@Override
+	public void setMinWidth(int minpixels) {
+		super.setMinWidth(minpixels);
+		customMinWidth = minpixels != 0;
+	}
+	
+	@Override
+	public void setMaxWidth(int maxpixels) {
+		super.setMaxWidth(maxpixels);
+		customMaxWidth = maxpixels != Integer.MAX_VALUE;
+	}
+	
+	@Override
+	public void setWidth(int pixels) {
+		super.setWidth(pixels);
+		customMinWidth = true;
+		customMaxWidth = true;
+	}
+	
+	@Override
+	public void setMinEms(int minems) {
+		super.setMinEms(minems);
+		customMinWidth = true;
+	}
+	
+	@Override
+	public void setMaxEms(int maxems) {
+		super.setMaxEms(maxems);
+		customMaxWidth = true;
+	}
+	
+	@Override
+	public void setEms(int ems) {
+		super.setEms(ems);
+		customMinWidth = true;
+		customMaxWidth = true;
+	}
+	
+	@Override
+	public void setHeight(int pixels) {
+		super.setHeight(pixels);
+		customHeight = true;
+	}
+	
+	@Override
+	public void setMinHeight(int minHeight) {
+		super.setMinHeight(minHeight);
+		customHeight = true;
+	}
+	
+	@Override
+	public void setMaxHeight(int maxHeight) {
+		super.setMaxHeight(maxHeight);
+		customHeight = true;
+	}
+	
+	@Override
+	public void setLines(int lines) {
+		super.setLines(lines);
+		customHeight = true;
+	}
+	
+	@Override
+	public void setMinLines(int minlines) {
+		super.setMinLines(minlines);
+		customHeight = true;
+	}
+	
+	@Override
+	public void setMaxLines(int maxlines) {
+		super.setMaxLines(maxlines);
+		customHeight = true;
+	}
+	
+	@Override
+	public void setLineSpacing(float add, float mult) {
+		super.setLineSpacing(add, mult);
+		customLineSpacing = add != 0 || mult != 1;
+	}
+	
+	@Override
+	public void setIncludeFontPadding(boolean includepad) {
+		super.setIncludeFontPadding(includepad);
+		noFontPadding = !includepad;
+	}
+	
+	/**
+     * Is this badge drawn as a dot?
+     * 
+     */
+	public boolean isDotMode() {
+		return dotMode;
+	}
+	
+	/**
+     * Draw this badge as a filled circle in the badge background color, without a label. 
+     * A dot has a fixed size, so label changes never lay it out again.
+     * 
+     * @param dotMode true to draw a dot, false to draw the label.
+     */
+	public void setDotMode(boolean dotMode) {
+		if (this.dotMode != dotMode) {
+			this.dotMode = dotMode;
+			onDotChanged();
+		}
+	}
+	
+	/**
+     * Returns the radius of this badge in dot mode.
+     * 
+     */
+	public int getDotRadius() {
+		return dotRadius;
+	}
+	
+	/**
+     * Set the radius of this badge in dot mode.
+     * 
+     * @param radius the radius in pixels.
+     */
+	public void setDotRadius(int radius) {
+		if (this.dotRadius != radius) {
+			this.dotRadius = radius;
+			if (dotMode) {
+				onDotChanged();
+			}
+		}
+	}
+	
+	private void onDotChanged() {
+		layoutParamsDirty = true;
+		updateBackground();
+		if (!dotMode && labelDeferred) {
+			labelDeferred = false;
+			CharSequence label = deferredLabel;
+			deferredLabel = null;
+			if (isCounter) {
+				renderCount(count.get());
+			} else {
+				setText(label, deferredType);
+			}
+		}
+		if (isShown) {
+			applyLayoutParams();
+		}
+		invalidate();
+	}
+	
+	/**
+	 * Dot and atlas badges draw the default background themselves in onDraw, so that the 
+	 * dot or the pre-rendered image replaces it rather than being drawn over it.
+	 */
+	private boolean drawsOwnBackground() {
+		return dotMode || atlas != null;
+	}
+	
+	private void updateBackground() {
+		Drawable bg = getBackground();
+		if (drawsOwnBackground()) {
+			if (bg != null && bg == badgeBg) {
+				setBackgroundDrawable(null);
+			}
+		} else if (bg == null && isShown) {
+			if (badgeBg == null) {
+				badgeBg = getDefaultBackground();
+			}
+			setBackgroundDrawable(badgeBg);
+		}
+	}
+	
+	@Override
+	public void draw(Canvas canvas) {
+		if (BadgeMetrics.enabled) {
+			BadgeMetrics.onDraw(this);
+		}
+		super.draw(canvas);
+	}
+	
+	@Override
+	protected void onDraw(Canvas canvas) {
+		if (dotMode) {
+			drawDot(canvas);
+			return;
+		}
+		if (atlas != null && getBackground() == null) {
+			if (badgeBg == null) {
+				badgeBg = getDefaultBackground();
+			}
+			if (drawFromAtlas(canvas)) {
+				return;
+			}
+			badgeBg.setBounds(0, 0, getWidth(), getHeight());
+			badgeBg.draw(canvas);
+		}
+		super.onDraw(canvas);
+	}
+	
+	private void drawDot(Canvas canvas) {
+		if (dotPaint == null) {
+			dotPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+		}
+		dotPaint.setColor(badgeColor);
+		float r = Math.min(getWidth(), getHeight()) / 2f;
+		canvas.drawCircle(getWidth() / 2f, getHeight() / 2f, r, dotPaint);
+	}
+	
+	private boolean drawFromAtlas(Canvas canvas) {
+		if (!isCounter || numberFormat != null || countPending.get()) {
+			return false;
+		}
+		int count = this.count.get();
+		if ((maxCount > 0 && count > maxCount) || !atlas.contains(count)) {
+			return false;
+		}
+		TextPaint paint = getPaint();
+		if (!atlas.matches(badgeColor, getCurrentTextColor(), paint.getTextSize(), paint.getTypeface())
+				|| getWidth() != atlas.getCellWidth(count) || getHeight() != atlas.getCellHeight()) {
+			return false;
+		}
+		atlas.draw(canvas, count, 0, 0, null);
+		return true;
+	}
+	
+	@Override
+	public void requestLayout() {
+		if (BadgeMetrics.enabled) {
+			BadgeMetrics.onLayoutRequest(this);
+		}
+		super.requestLayout();
+		if (overlay != null) {
+			// overlay badges have no parent to propagate to, the overlay measures them when drawing
+			overlay.invalidateBadge(this);
+		}
+	}
+	
+	@Override
+	public void invalidate() {
+		super.invalidate();
+		if (overlay != null) {
+			overlay.invalidateBadge(this);
+		}
+	}
+	
 	/**
      * Returns the target View this badge has been attached to.
      * 
      */
 	public View getTarget() {
-		return target;
+		return target == null ? null : target.get();
+	}
+	
+	/**
+     * Returns the BadgeOverlayLayout drawing this badge, or null if the badge wraps its target.
+     * 
+     */
+	public BadgeOverlayLayout getOverlay() {
+		return overlay;
 	}
 
 	/**
@@ -399,7 +1607,10 @@ public class BadgeView extends TextView {
      * 
      */
 	public void setBadgePosition(int layoutPosition) {
-		this.badgePosition = layoutPosition;
+		if (this.badgePosition != layoutPosition) {
+			this.badgePosition = layoutPosition;
+			layoutParamsDirty = true;
+		}
 	}
 
 	/**
@@ -424,8 +1635,7 @@ public class BadgeView extends TextView {
      * @param badgeMargin the margin in pixels.
      */
 	public void setBadgeMargin(int badgeMargin) {
-		this.badgeMarginH = badgeMargin;
-		this.badgeMarginV = badgeMargin;
+		setBadgeMargin(badgeMargin, badgeMargin);
 	}
 	
 	/**
@@ -435,8 +1645,58 @@ public class BadgeView extends TextView {
      * @param vertical margin in pixels.
      */
 	public void setBadgeMargin(int horizontal, int vertical) {
-		this.badgeMarginH = horizontal;
-		this.badgeMarginV = vertical;
+		if (this.badgeMarginH != horizontal || this.badgeMarginV != vertical) {
+			this.badgeMarginH = horizontal;
+			this.badgeMarginV = vertical;
+			layoutParamsDirty = true;
+		}
+	}
+	
+	/**
+     * Returns the style this badge was last set up with.
+     * 
+     */
+	public BadgeStyle getBadgeStyle() {
+		return style;
+	}
+	
+	/**
+     * Apply a precomputed style to this badge, replacing its position, margins, colors, 
+     * typeface, padding and (if the style sets one) text size.
+     * 
+     * @param style the style to apply.
+     */
+	public void setBadgeStyle(BadgeStyle style) {
+		
+		BadgeStyle oldStyle = this.style;
+		this.style = style;
+		
+		setBadgePosition(style.getBadgePosition());
+		setBadgeMargin(style.getHorizontalBadgeMargin(), style.getVerticalBadgeMargin());
+		setDotRadius(style.getDotRadius());
+		
+		setTypeface(style.getTypeface());
+		int padding = style.getHorizontalPadding();
+		setPadding(padding, 0, padding, 0);
+		setTextColor(style.getTextColor());
+		if (style.getTextSize() > 0) {
+			setTextSize(TypedValue.COMPLEX_UNIT_PX, style.getTextSize());
+		}
+		
+		// the cached background can be kept only if it has the same shape and color
+		if (badgeBg == null || badgeColor != style.getBadgeBackgroundColor()
+				|| oldStyle == null
+				|| oldStyle.getCornerRadius() != style.getCornerRadius()
+				|| oldStyle.getDensityDpi() != style.getDensityDpi()) {
+			badgeColor = style.getBadgeBackgroundColor();
+			Drawable oldBg = badgeBg;
+			badgeBg = null;
+			if (oldBg != null && getBackground() == oldBg) {
+				badgeBg = getDefaultBackground();
+				setBackgroundDrawable(badgeBg);
+			}
+		}
+		
 	}
 	
 	/**
@@ -454,13 +1714,15 @@ public class BadgeView extends TextView {
      */
 	public void setBadgeBackgroundColor(int badgeColor) {
 		this.badgeColor = badgeColor;
+		Drawable oldBg = badgeBg;
 		badgeBg = getDefaultBackground();
+		if (oldBg != null && getBackground() == oldBg) {
+			// the default background is already showing, replace it
+			setBackgroundDrawable(badgeBg);
+		} else if (drawsOwnBackground()) {
+			invalidate();
+		}
 	}
 	
-	private int dipToPixels(int dip) {
-		Resources r = getResources();
-		float px = TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_DIP, dip, r.getDisplayMetrics());
-		return (int) px;
-	}
 
 }
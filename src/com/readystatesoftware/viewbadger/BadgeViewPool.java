@@ -0,0 +1,196 @@
+package com.readystatesoftware.viewbadger;
+
+import java.util.ArrayList;
+
+import android.content.Context;
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.view.View;
+import android.widget.TabWidget;
+
+/**
+ * A bounded pool of detached, reset {@link BadgeView}s.
+ *
+ * Badges acquired from the pool are returned to it when they are detached, so badging
+ * views during list flings or tab switches does not have to construct new TextViews.
+ * The pool can be pre-warmed while the main thread is idle. Pools hold a context and
+ * should be scoped to the Activity that owns the badged views. All methods must be
+ * called on the main thread.
+ *
+ * <pre>
+ * BadgeViewPool pool = new BadgeViewPool(this, 20);
+ * pool.prewarm(10);
+ * ...
+ * BadgeView badge = pool.acquire(target);
+ * badge.setCount(3);
+ * badge.show();
+ * ...
+ * badge.detach(); // returns the badge to the pool
+ * </pre>
+ */
+public class BadgeViewPool {
+
+	private final Context context;
+	private final int maxSize;
+	private final ArrayList<BadgeView> badges;
+
+	private int hitCount;
+	private int missCount;
+	private int prewarmTarget;
+	private boolean prewarming;
+
+	private final MessageQueue.IdleHandler prewarmHandler = new MessageQueue.IdleHandler() {
+		@Override
+		public boolean queueIdle() {
+			// create one badge per idle pass so a large pre-warm never blocks a frame
+			if (badges.size() < prewarmTarget) {
+				badges.add(create());
+			}
+			prewarming = badges.size() < prewarmTarget;
+			return prewarming;
+		}
+	};
+
+	/**
+     * Constructor -
+     *
+     * create an empty pool.
+     *
+     * @param context context for pooled badges.
+     * @param maxSize the maximum number of idle badges kept by the pool.
+     */
+	public BadgeViewPool(Context context, int maxSize) {
+		if (maxSize < 1) {
+			throw new IllegalArgumentException("maxSize must be at least 1");
+		}
+		this.context = context;
+		this.maxSize = maxSize;
+		this.badges = new ArrayList<BadgeView>(maxSize);
+	}
+
+	/**
+     * Create badges while the main thread is idle until the pool holds the given number
+     * of idle badges. Must be called on the main thread.
+     *
+     * @param count the number of idle badges to pre-warm, capped to the pool size.
+     */
+	public void prewarm(int count) {
+		prewarmTarget = Math.min(count, maxSize);
+		if (!prewarming && badges.size() < prewarmTarget) {
+			prewarming = true;
+			Looper.myQueue().addIdleHandler(prewarmHandler);
+		}
+	}
+
+	/**
+     * Attach a pooled (or, if the pool is empty, new) badge to a target View.
+     *
+     * @param target the View to attach the badge to.
+     */
+	public BadgeView acquire(View target) {
+		return acquire(target, 0, null);
+	}
+
+	/**
+     * Attach a pooled (or, if the pool is empty, new) badge drawn over a target View by
+     * an overlay.
+     *
+     * @param target the View to attach the badge to.
+     * @param overlay a BadgeOverlayLayout that is an ancestor of target.
+     */
+	public BadgeView acquire(View target, BadgeOverlayLayout overlay) {
+		return acquire(target, 0, overlay);
+	}
+
+	/**
+     * Attach a pooled (or, if the pool is empty, new) badge to a TabWidget tab.
+     *
+     * @param target the TabWidget to attach the badge to.
+     * @param index the position of the tab within the target.
+     */
+	public BadgeView acquire(TabWidget target, int index) {
+		return acquire(target, index, null);
+	}
+
+	private BadgeView acquire(View target, int tabIndex, BadgeOverlayLayout overlay) {
+		BadgeView badge;
+		int last = badges.size() - 1;
+		if (last >= 0) {
+			badge = badges.remove(last);
+			hitCount++;
+		} else {
+			badge = create();
+			missCount++;
+		}
+		badge.setPool(this);
+		badge.attachTo(target, tabIndex, overlay);
+		return badge;
+	}
+
+	void recycle(BadgeView badge) {
+		if (badges.size() < maxSize && !badges.contains(badge)) {
+			badge.reset();
+			badges.add(badge);
+		}
+	}
+
+	private BadgeView create() {
+		return new BadgeView(context, (BadgeStyle) null);
+	}
+
+	/**
+     * Returns the number of idle badges in the pool.
+     *
+     */
+	public int size() {
+		return badges.size();
+	}
+
+	/**
+     * Returns the maximum number of idle badges kept by the pool.
+     *
+     */
+	public int getMaxSize() {
+		return maxSize;
+	}
+
+	/**
+     * Returns the number of acquisitions served by a pooled badge.
+     *
+     */
+	public int getHitCount() {
+		return hitCount;
+	}
+
+	/**
+     * Returns the number of acquisitions that had to construct a new badge.
+     *
+     */
+	public int getMissCount() {
+		return missCount;
+	}
+
+	/**
+     * Returns the fraction of acquisitions served by a pooled badge, or 0 if no badges
+     * have been acquired.
+     *
+     */
+	public float getHitRate() {
+		int total = hitCount + missCount;
+		return total == 0 ? 0 : (float) hitCount / total;
+	}
+
+	/**
+     * Discard every idle badge and stop any pre-warming.
+     *
+     */
+	public void clear() {
+		if (prewarming) {
+			Looper.myQueue().removeIdleHandler(prewarmHandler);
+			prewarming = false;
+		}
+		prewarmTarget = 0;
+		badges.clear();
+	}
+
+}
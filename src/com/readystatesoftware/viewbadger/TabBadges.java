@@ -0,0 +1,181 @@
+package com.readystatesoftware.viewbadger;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Rect;
+import android.graphics.drawable.Drawable;
+import android.util.SparseArray;
+import android.view.View;
+import android.widget.TabWidget;
+
+/**
+ * Badges for the tabs of a {@link android.widget.TabWidget}, drawn by a
+ * {@link BadgeOverlayLayout} in a single pass over the whole tab strip.
+ *
+ * Unlike attaching a {@link BadgeView} to each tab, no containers or views are added
+ * to the tabs. The badge state for every tab index lives in this object, and updating
+ * a badge only redraws the overlay.
+ */
+public class TabBadges implements Drawable.Callback {
+
+	private final Context context;
+	private final TabWidget tabs;
+	private BadgeOverlayLayout overlay;
+
+	private final SparseArray<BadgeDrawable> badges = new SparseArray<BadgeDrawable>();
+	private final Rect tabRect = new Rect();
+	private final Rect visibleRect = new Rect();
+	private final char[] countBuffer = new char[12];
+
+	private final BadgeStyle style;
+
+	/**
+     * Constructor -
+     *
+     * create badges for the tabs of a {@link android.widget.TabWidget}.
+     *
+     * @param context context for the badges.
+     * @param tabs the TabWidget whose tabs are badged.
+     * @param overlay a BadgeOverlayLayout that is an ancestor of tabs.
+     */
+	public TabBadges(Context context, TabWidget tabs, BadgeOverlayLayout overlay) {
+		this.context = context;
+		this.tabs = tabs;
+		this.overlay = overlay;
+		this.style = BadgeStyle.getDefault(context);
+		overlay.addTabBadges(this);
+	}
+
+	/**
+     * Returns the badge for the tab at the given index, creating it if necessary. A new
+     * badge is hidden and positioned at the top right of the tab.
+     *
+     * @param index the position of the tab within the TabWidget.
+     */
+	public BadgeDrawable getBadge(int index) {
+		BadgeDrawable badge = badges.get(index);
+		if (badge == null) {
+			badge = new BadgeDrawable(context, style);
+			badge.hide();
+			badge.setCallback(this);
+			badges.put(index, badge);
+		}
+		return badge;
+	}
+
+	/**
+     * Set the label of the badge for a tab.
+     *
+     * @param index the position of the tab within the TabWidget.
+     * @param text the new label.
+     */
+	public void setText(int index, CharSequence text) {
+		getBadge(index).setText(text);
+	}
+
+	/**
+     * Set the numeric label of the badge for a tab.
+     *
+     * @param index the position of the tab within the TabWidget.
+     * @param count the count to display.
+     */
+	public void setCount(int index, int count) {
+		int len = BadgeView.formatInt(count, countBuffer);
+		getBadge(index).setText(countBuffer, 0, len);
+	}
+
+	/**
+     * Make the badge for a tab visible.
+     *
+     * @param index the position of the tab within the TabWidget.
+     */
+	public void show(int index) {
+		getBadge(index).show();
+	}
+
+	/**
+     * Make the badge for a tab non-visible.
+     *
+     * @param index the position of the tab within the TabWidget.
+     */
+	public void hide(int index) {
+		BadgeDrawable badge = badges.get(index);
+		if (badge != null) {
+			badge.hide();
+		}
+	}
+
+	/**
+     * Is the badge for a tab currently visible?
+     *
+     * @param index the position of the tab within the TabWidget.
+     */
+	public boolean isShown(int index) {
+		BadgeDrawable badge = badges.get(index);
+		return badge != null && badge.isShown();
+	}
+
+	/**
+     * Returns the TabWidget these badges are drawn over.
+     *
+     */
+	public TabWidget getTabWidget() {
+		return tabs;
+	}
+
+	/**
+     * Stop drawing these badges and remove them from the overlay.
+     *
+     */
+	public void detach() {
+		if (overlay != null) {
+			overlay.removeTabBadges(this);
+			overlay = null;
+		}
+	}
+
+	void draw(Canvas canvas, BadgeOverlayLayout overlay) {
+
+		if (!tabs.isShown()) {
+			return;
+		}
+
+		for (int i = 0, n = badges.size(); i < n; i++) {
+			BadgeDrawable badge = badges.valueAt(i);
+			if (!badge.isShown()) {
+				continue;
+			}
+			View tab = tabs.getChildTabViewAt(badges.keyAt(i));
+			if (tab == null || tab.getVisibility() != View.VISIBLE) {
+				continue;
+			}
+			tab.getDrawingRect(tabRect);
+			overlay.offsetDescendantRectToMyCoords(tab, tabRect);
+			if (!overlay.getVisibleRect(tab, tabRect, visibleRect)) {
+				continue;
+			}
+			badge.setBounds(tabRect);
+			int saveCount = canvas.save();
+			canvas.clipRect(visibleRect);
+			badge.draw(canvas);
+			canvas.restoreToCount(saveCount);
+		}
+
+	}
+
+	@Override
+	public void invalidateDrawable(Drawable who) {
+		if (overlay != null) {
+			overlay.invalidateBadges();
+		}
+	}
+
+	@Override
+	public void scheduleDrawable(Drawable who, Runnable what, long when) {
+	}
+
+	@Override
+	public void unscheduleDrawable(Drawable who, Runnable what) {
+	}
+
+}
@@ -2,6 +2,7 @@ package viewbadger.demo;
 
 import android.app.TabActivity;
 import android.content.Context;
+import android.content.Intent;
 import android.graphics.Color;
 import android.os.Bundle;
 import android.view.LayoutInflater;
@@ -18,6 +19,8 @@ import android.widget.TabWidget;
 import android.widget.TextView;
 import android.widget.Toast;
 
+import com.readystatesoftware.viewbadger.BadgeBinder;
+import com.readystatesoftware.viewbadger.BadgeStyle;
 import com.readystatesoftware.viewbadger.BadgeView;
 import com.readystatesoftware.viewbadger.R;
 
@@ -63,6 +66,10 @@ public class DemoActivity extends TabActivity {
         tabHost.addTab(tabHost.newTabSpec("tests")
                 .setIndicator("Layout Tests")
                 .setContent(R.id.tab3));
+        
+        tabHost.addTab(tabHost.newTabSpec("stress")
+                .setIndicator("Stress")
+                .setContent(new Intent(this, StressActivity.class)));
        
         // *** default badge ***
         
@@ -181,7 +188,9 @@ public class DemoActivity extends TabActivity {
         
         btnIncrement = (Button) findViewById(R.id.increment_target);
         badge8 = new BadgeView(this, btnIncrement);
-        badge8.setText("0");
+        badge8.setCount(0);
+        badge8.setMaxCount(99);
+        badge8.setStableWidth(true);
         btnIncrement.setOnClickListener(new OnClickListener() {
 			@Override
 			public void onClick(View v) {
@@ -210,56 +219,56 @@ public class DemoActivity extends TabActivity {
 		// *** test linear layout container ***
 		
 		target = findViewById(R.id.linear_target);
-		badge = new BadgeView(this, target);
+		badge = BadgeView.attach(this, target);
 		badge.setText("OK");
 		badge.show();
 		
 		// *** test relative layout container ***
 		
 		target = findViewById(R.id.relative_target);
-		badge = new BadgeView(this, target);
+		badge = BadgeView.attach(this, target);
 		badge.setText("OK");
 		badge.show();
 		
 		// *** test frame layout container ***
 		
 		target = findViewById(R.id.frame_target);
-		badge = new BadgeView(this, target);
+		badge = BadgeView.attach(this, target);
 		badge.setText("OK");
 		badge.show();
 		
 		// *** test table layout container ***
 		
 		target = findViewById(R.id.table_target);
-		badge = new BadgeView(this, target);
+		badge = BadgeView.attach(this, target);
 		badge.setText("OK");
 		badge.show();
 		
 		// *** test linear layout ***
 		
 		target = findViewById(R.id.linear_group_target);
-		badge = new BadgeView(this, target);
+		badge = BadgeView.attach(this, target);
 		badge.setText("OK");
 		badge.show();
 		
 		// *** test relative layout ***
 		
 		target = findViewById(R.id.relative_group_target);
-		badge = new BadgeView(this, target);
+		badge = BadgeView.attach(this, target);
 		badge.setText("OK");
 		badge.show();
 		
 		// *** test frame layout ***
 		
 		target = findViewById(R.id.frame_group_target);
-		badge = new BadgeView(this, target);
+		badge = BadgeView.attach(this, target);
 		badge.setText("OK");
 		badge.show();
 		
 		// *** test table layout ***
 		
 		target = findViewById(R.id.tablerow_group_target);
-		badge = new BadgeView(this, target);
+		badge = BadgeView.attach(this, target);
 		badge.setText("OK");
 		badge.show();
 		
@@ -268,11 +277,22 @@ public class DemoActivity extends TabActivity {
     private static class BadgeAdapter extends BaseAdapter {
         private LayoutInflater mInflater;
         private Context mContext;
+        private BadgeBinder mBinder;
+        private BadgeStyle mStyle;
         private static final int droidGreen = Color.parseColor("#A4C639");
         
         public BadgeAdapter(Context context) {
             mInflater = LayoutInflater.from(context);
             mContext = context;
+            mStyle = BadgeStyle.getDefault(context).buildUpon()
+                    .setBadgeBackgroundColor(droidGreen)
+                    .setTextColor(Color.BLACK)
+                    .build();
+            mBinder = new BadgeBinder();
+            for (int position = 0; position < DATA.length; position += 3) {
+            	mBinder.setCount(position, position);
+            	mBinder.show(position);
+            }
         }
 
         public int getCount() {
@@ -295,8 +315,7 @@ public class DemoActivity extends TabActivity {
                 holder = new ViewHolder();
                 holder.text = (TextView) convertView.findViewById(android.R.id.text1);
                 holder.badge = new BadgeView(mContext, holder.text);
-                holder.badge.setBadgeBackgroundColor(droidGreen);
-                holder.badge.setTextColor(Color.BLACK);
+                holder.badge.setBadgeStyle(mStyle);
                 convertView.setTag(holder);
             } else {
                 holder = (ViewHolder) convertView.getTag();
@@ -304,13 +323,7 @@ public class DemoActivity extends TabActivity {
 
             holder.text.setText(DATA[position]);
             
-            if (position % 3 == 0) {
-            	holder.badge.setText(String.valueOf(position));
-            	holder.badge.show();
-            } else {
-            	holder.badge.hide();
-            }
-            
+            mBinder.bind(holder.badge, getItemId(position));
             
             return convertView;
         }
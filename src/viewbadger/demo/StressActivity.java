@@ -0,0 +1,343 @@
+package viewbadger.demo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Random;
+
+import android.app.Activity;
+import android.content.Context;
+import android.graphics.Color;
+import android.os.Bundle;
+import android.os.Handler;
+import android.util.Log;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.View.OnClickListener;
+import android.view.ViewGroup;
+import android.view.ViewTreeObserver;
+import android.widget.AbsListView;
+import android.widget.BaseAdapter;
+import android.widget.Button;
+import android.widget.ListView;
+import android.widget.TextView;
+
+import com.readystatesoftware.viewbadger.BadgeAtlas;
+import com.readystatesoftware.viewbadger.BadgeBinder;
+import com.readystatesoftware.viewbadger.BadgeMetrics;
+import com.readystatesoftware.viewbadger.BadgeOverlayLayout;
+import com.readystatesoftware.viewbadger.BadgeStyle;
+import com.readystatesoftware.viewbadger.BadgeView;
+import com.readystatesoftware.viewbadger.R;
+
+/**
+ * Scrolls a list with a live badge on every row and reports frame time percentiles and
+ * dropped frames for each badge rendering mode.
+ */
+public class StressActivity extends Activity {
+
+	private static final String TAG = "BadgeStress";
+	
+	private static final int ROW_COUNT = 5000;
+	private static final int UPDATES_PER_TICK = 50;
+	private static final int TICK_MILLIS = 100;
+	private static final int MAX_FRAMES = 4096;
+	// counts stay within the atlas, so every mode shows the same labels
+	private static final int MAX_COUNT = 99;
+	
+	private static final int MODE_WRAP = 0;
+	private static final int MODE_OVERLAY = 1;
+	private static final int MODE_OVERLAY_ATLAS = 2;
+	private static final int MODE_DOT = 3;
+	private static final String[] MODE_NAMES = {"Wrap", "Overlay", "Overlay + atlas", "Dot"};
+	
+	private static final String[] DATA = Cheeses.sCheeseStrings;
+	
+	ListView list;
+	BadgeOverlayLayout overlay;
+	TextView report;
+	Button btnMode;
+	
+	private int mode;
+	private StressAdapter adapter;
+	private final BadgeBinder binder = new BadgeBinder();
+	private final int[] counts = new int[ROW_COUNT];
+	private final Random random = new Random(42);
+	private final Handler handler = new Handler();
+	
+	private boolean scrolling;
+	private long lastFrameNanos;
+	private long bindNanos;
+	private final long[] frameNanos = new long[MAX_FRAMES];
+	private final long[] frameBindNanos = new long[MAX_FRAMES];
+	private int frameCount;
+	private long frameBudgetNanos;
+	// badge events counted while scrolling only, the ticker keeps drawing badges when idle
+	private BadgeMetrics.Snapshot scrollStart;
+	private int scrollDraws;
+	private int scrollLayouts;
+	
+	private final Runnable ticker = new Runnable() {
+		@Override
+		public void run() {
+			updateCounts();
+			handler.postDelayed(this, TICK_MILLIS);
+		}
+	};
+	
+	@Override
+	public void onCreate(Bundle savedInstanceState) {
+		super.onCreate(savedInstanceState);
+		setContentView(R.layout.stress);
+		
+		float refreshRate = getWindowManager().getDefaultDisplay().getRefreshRate();
+		frameBudgetNanos = (long) (1e9 / (refreshRate > 0 ? refreshRate : 60));
+		
+		list = (ListView) findViewById(R.id.stress_list);
+		overlay = (BadgeOverlayLayout) findViewById(R.id.stress_overlay);
+		report = (TextView) findViewById(R.id.stress_report);
+		
+		for (int i = 0; i < ROW_COUNT; i++) {
+			counts[i] = 1 + random.nextInt(MAX_COUNT);
+			binder.setCount(i, counts[i]);
+			binder.show(i);
+		}
+		
+		btnMode = (Button) findViewById(R.id.stress_mode);
+		btnMode.setOnClickListener(new OnClickListener() {
+			@Override
+			public void onClick(View v) {
+				setMode((mode + 1) % MODE_NAMES.length);
+			}
+		});
+		
+		findViewById(R.id.stress_reset).setOnClickListener(new OnClickListener() {
+			@Override
+			public void onClick(View v) {
+				resetStats();
+			}
+		});
+		
+		list.setOnScrollListener(new AbsListView.OnScrollListener() {
+			@Override
+			public void onScrollStateChanged(AbsListView view, int scrollState) {
+				boolean wasScrolling = scrolling;
+				scrolling = scrollState != SCROLL_STATE_IDLE;
+				lastFrameNanos = 0;
+				if (scrolling && !wasScrolling) {
+					scrollStart = BadgeMetrics.snapshot();
+				} else if (!scrolling && wasScrolling) {
+					BadgeMetrics.Snapshot end = BadgeMetrics.snapshot();
+					if (scrollStart != null) {
+						scrollDraws += end.draws - scrollStart.draws;
+						scrollLayouts += end.layoutRequests - scrollStart.layoutRequests;
+						scrollStart = null;
+					}
+					showReport();
+				}
+			}
+			@Override
+			public void onScroll(AbsListView view, int firstVisibleItem, int visibleItemCount, int totalItemCount) {
+			}
+		});
+		
+		// the interval between draws while scrolling is the frame time
+		list.getViewTreeObserver().addOnPreDrawListener(new ViewTreeObserver.OnPreDrawListener() {
+			@Override
+			public boolean onPreDraw() {
+				onFrame();
+				return true;
+			}
+		});
+		
+		setMode(MODE_WRAP);
+	}
+	
+	@Override
+	protected void onResume() {
+		super.onResume();
+		BadgeMetrics.setEnabled(true);
+		handler.postDelayed(ticker, TICK_MILLIS);
+	}
+	
+	@Override
+	protected void onPause() {
+		super.onPause();
+		handler.removeCallbacks(ticker);
+		BadgeMetrics.setEnabled(false);
+	}
+	
+	private void setMode(int mode) {
+		this.mode = mode;
+		btnMode.setText("Mode: " + MODE_NAMES[mode]);
+		if (adapter != null) {
+			adapter.detachBadges();
+		}
+		adapter = new StressAdapter(this);
+		list.setAdapter(adapter);
+		resetStats();
+		if (mode == MODE_OVERLAY_ATLAS && adapter.mAtlas == null) {
+			// without an atlas this mode would silently measure the same as overlay mode
+			String message = "The badge atlas does not fit in " + BadgeAtlas.getMaxBytes() 
+					+ " bytes, badges are rendered without it";
+			Log.w(TAG, message);
+			report.setText(message);
+		}
+	}
+	
+	private void updateCounts() {
+		long start = System.nanoTime();
+		for (int i = 0; i < UPDATES_PER_TICK; i++) {
+			int row = random.nextInt(ROW_COUNT);
+			counts[row] = (counts[row] + random.nextInt(3)) % MAX_COUNT + 1;
+			binder.setCount(row, counts[row]);
+		}
+		// rebind the visible rows, the binder only touches badges whose count changed
+		int first = list.getFirstVisiblePosition();
+		for (int i = 0, n = list.getChildCount(); i < n; i++) {
+			StressAdapter.ViewHolder holder = (StressAdapter.ViewHolder) list.getChildAt(i).getTag();
+			if (holder != null) {
+				binder.bind(holder.badge, first + i);
+			}
+		}
+		bindNanos += System.nanoTime() - start;
+	}
+	
+	private void onFrame() {
+		long now = System.nanoTime();
+		if (scrolling && lastFrameNanos != 0 && frameCount < MAX_FRAMES) {
+			frameNanos[frameCount] = now - lastFrameNanos;
+			frameBindNanos[frameCount] = bindNanos;
+			frameCount++;
+		}
+		lastFrameNanos = scrolling ? now : 0;
+		bindNanos = 0;
+	}
+	
+	private void resetStats() {
+		frameCount = 0;
+		lastFrameNanos = 0;
+		bindNanos = 0;
+		BadgeMetrics.reset();
+		scrollStart = scrolling ? BadgeMetrics.snapshot() : null;
+		scrollDraws = 0;
+		scrollLayouts = 0;
+		report.setText("Scroll the list to record frame times");
+	}
+	
+	private void showReport() {
+		if (frameCount == 0) {
+			return;
+		}
+		long[] sorted = new long[frameCount];
+		System.arraycopy(frameNanos, 0, sorted, 0, frameCount);
+		Arrays.sort(sorted);
+		long dropped = 0;
+		long totalBind = 0;
+		for (int i = 0; i < frameCount; i++) {
+			// a frame that took n budgets missed n - 1 vsyncs
+			dropped += Math.max(0, Math.round((double) frameNanos[i] / frameBudgetNanos) - 1);
+			totalBind += frameBindNanos[i];
+		}
+		String summary = String.format(Locale.US,
+				"%s: %d frames, p50 %.1fms, p90 %.1fms, p99 %.1fms, %d dropped, "
+				+ "bind %.2fms/frame, %.1f badge draws/frame, %.1f badge layouts/frame",
+				MODE_NAMES[mode], frameCount, percentile(sorted, 50), percentile(sorted, 90),
+				percentile(sorted, 99), dropped, totalBind / 1e6 / frameCount,
+				(double) scrollDraws / frameCount, (double) scrollLayouts / frameCount);
+		report.setText(summary);
+		Log.i(TAG, summary);
+	}
+	
+	private static double percentile(long[] sorted, int p) {
+		int index = (int) Math.ceil(p / 100.0 * sorted.length) - 1;
+		return sorted[Math.max(0, index)] / 1e6;
+	}
+	
+	private class StressAdapter extends BaseAdapter {
+		private LayoutInflater mInflater;
+		private Context mContext;
+		private BadgeAtlas mAtlas;
+		private ArrayList<BadgeView> mBadges = new ArrayList<BadgeView>();
+		private final BadgeStyle mStyle;
+		private final int droidGreen = Color.parseColor("#A4C639");
+		
+		public StressAdapter(Context context) {
+			mInflater = LayoutInflater.from(context);
+			mContext = context;
+			mStyle = BadgeStyle.getDefault(context).buildUpon()
+					.setBadgeBackgroundColor(droidGreen)
+					.setTextColor(Color.BLACK)
+					.build();
+			if (mode == MODE_OVERLAY_ATLAS) {
+				mAtlas = BadgeAtlas.get(context, mStyle, MAX_COUNT);
+			}
+		}
+		
+		public int getCount() {
+			return ROW_COUNT;
+		}
+		
+		public Object getItem(int position) {
+			return position;
+		}
+		
+		public long getItemId(int position) {
+			return position;
+		}
+		
+		public View getView(int position, View convertView, ViewGroup parent) {
+			long start = System.nanoTime();
+			ViewHolder holder;
+			
+			if (convertView == null) {
+				convertView = mInflater.inflate(android.R.layout.simple_list_item_2, null);
+				holder = new ViewHolder();
+				holder.text = (TextView) convertView.findViewById(android.R.id.text1);
+				holder.badge = createBadge(holder.text);
+				mBadges.add(holder.badge);
+				convertView.setTag(holder);
+			} else {
+				holder = (ViewHolder) convertView.getTag();
+			}
+			
+			holder.text.setText(DATA[position % DATA.length]);
+			
+			binder.bind(holder.badge, getItemId(position));
+			
+			bindNanos += System.nanoTime() - start;
+			return convertView;
+		}
+		
+		private BadgeView createBadge(View target) {
+			BadgeView badge;
+			if (mode == MODE_OVERLAY || mode == MODE_OVERLAY_ATLAS) {
+				badge = new BadgeView(mContext, target, overlay);
+			} else {
+				badge = new BadgeView(mContext, target);
+			}
+			badge.setBadgeStyle(mStyle);
+			badge.setVisibilityMode(BadgeView.VISIBILITY_MODE_LAYOUT_FREE);
+			if (mode == MODE_DOT) {
+				badge.setDotMode(true);
+			}
+			if (mAtlas != null) {
+				badge.setBadgeAtlas(mAtlas);
+			}
+			return badge;
+		}
+		
+		void detachBadges() {
+			for (int i = 0, n = mBadges.size(); i < n; i++) {
+				mBadges.get(i).detach();
+			}
+			mBadges.clear();
+		}
+		
+		class ViewHolder {
+			TextView text;
+			BadgeView badge;
+		}
+	}
+	
+}
@@ -0,0 +1,60 @@
+package com.readystatesoftware.viewbadger;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import android.content.Context;
+import android.view.View.MeasureSpec;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class BadgeMeasureCacheTest {
+
+	private Context context;
+
+	@Before
+	public void setUp() {
+		context = RuntimeEnvironment.getApplication();
+		BadgeMeasureCache.clear();
+	}
+
+	@Test
+	public void counterLabelsHitCache() {
+		measure(newCounter(42));
+		assertEquals(1, BadgeMeasureCache.getMissCount());
+		assertEquals(0, BadgeMeasureCache.getHitCount());
+
+		measure(newCounter(42));
+		assertEquals(1, BadgeMeasureCache.getMissCount());
+		assertEquals(1, BadgeMeasureCache.getHitCount());
+	}
+
+	@Test
+	public void counterAndStringLabelsShareEntries() {
+		measure(newCounter(7));
+		BadgeView badge = new BadgeView(context, (BadgeStyle) null);
+		badge.setText("7");
+		measure(badge);
+		assertEquals(1, BadgeMeasureCache.getMissCount());
+		assertEquals(1, BadgeMeasureCache.getHitCount());
+		assertEquals(1, BadgeMeasureCache.size());
+	}
+
+	private BadgeView newCounter(int count) {
+		BadgeView badge = new BadgeView(context, (BadgeStyle) null);
+		badge.setCount(count);
+		return badge;
+	}
+
+	private static void measure(BadgeView badge) {
+		int spec = MeasureSpec.makeMeasureSpec(0, MeasureSpec.UNSPECIFIED);
+		badge.measure(spec, spec);
+	}
+
+}
@@ -0,0 +1,69 @@
+package com.readystatesoftware.viewbadger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import android.content.Context;
+import android.util.TypedValue;
+import android.view.View;
+import android.widget.ImageView;
+import android.widget.LinearLayout;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class BadgeViewPoolTest {
+
+	private Context context;
+	private BadgeViewPool pool;
+
+	@Before
+	public void setUp() {
+		context = RuntimeEnvironment.getApplication();
+		pool = new BadgeViewPool(context, 4);
+	}
+
+	@Test
+	public void detachedBadgeIsReused() {
+		BadgeView badge = pool.acquire(newTarget());
+		badge.detach();
+		assertEquals(1, pool.size());
+		assertSame(badge, pool.acquire(newTarget()));
+		assertEquals(1, pool.getHitCount());
+	}
+
+	@Test
+	public void recycledBadgeHasDefaultLayout() {
+		BadgeView fresh = new BadgeView(context, (BadgeStyle) null);
+
+		BadgeView badge = pool.acquire(newTarget());
+		badge.setStableWidth(true);
+		badge.setTextSize(TypedValue.COMPLEX_UNIT_PX, fresh.getTextSize() * 2);
+		badge.setCount(42);
+		badge.show();
+		badge.detach();
+
+		BadgeView reused = pool.acquire(newTarget());
+		assertSame(badge, reused);
+		assertFalse(reused.hasStableWidth());
+		assertEquals(fresh.getGravity(), reused.getGravity());
+		assertEquals(fresh.getTextSize(), reused.getTextSize(), 0f);
+		assertEquals("", reused.getText().toString());
+		assertFalse(reused.isShown());
+	}
+
+	private View newTarget() {
+		LinearLayout parent = new LinearLayout(context);
+		ImageView target = new ImageView(context);
+		parent.addView(target);
+		return target;
+	}
+
+}